@@ -47,9 +47,19 @@
  */
 package org.knime.base.data.xml;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -61,6 +71,7 @@
 import org.knime.core.node.NodeLogger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.w3c.dom.svg.SVGDocument;
 
 /**
  * Testcases for {@link SvgImageContent}
@@ -150,4 +161,117 @@ public void testSerializeFiltersUnsupportedChars() throws IOException, Transcode
             assertTrue("The emoji is replaced by U+FFFD.", serialised.codePoints().anyMatch(c -> c == 0xFFFD));
         }
     }
+
+    /**
+     * Test that serialization does not modify the document, even if characters have to be replaced
+     *
+     * @throws IOException
+     * @throws TranscoderException
+     */
+    @Test
+    public void testSerializeDoesNotModifyDocument() throws IOException, TranscoderException {
+        try (InputStream is = new ByteArrayInputStream(SVG_WITH_EMOJI.getBytes())) {
+            SvgImageContent image = new SvgImageContent(is);
+
+            Document doc = image.getSvgDocument();
+            String emoji = new StringBuilder().appendCodePoint(0x1f171).toString();
+            Node n = doc.getChildNodes().item(0).getChildNodes().item(0);
+            n.setNodeValue(emoji);
+
+            String serialised = SvgImageContent.serialize(doc);
+
+            assertTrue("The emoji is replaced by a single U+FFFD.", serialised.contains(">\ufffd<"));
+            assertTrue("The document still contains the emoji.", emoji.equals(n.getNodeValue()));
+        }
+    }
+
+    /**
+     * Test that painting the image of an SVG cell with the cached GVT tree and raster of its snapshot gives the same
+     * image as painting with a freshly built tree
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCachedPaint() throws IOException {
+        SvgValue cell = (SvgValue)SvgCellFactory.create(SVG_ALL_WITHIN_BMP);
+        SvgImageContent image = (SvgImageContent)cell.getImageContent();
+        SVGDocument snapshot = SvgCellContent.of(cell).getSnapshot();
+
+        BufferedImage uncached = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+        SvgValueRenderer.paint(image.getSvgDocument(), uncached.createGraphics(), new Rectangle(120, 80), true);
+        for (int i = 0; i < 2; i++) {
+            BufferedImage cached = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+            image.paint(cached.createGraphics(), 120, 80);
+            assertArrayEquals("Cached and uncached images differ", uncached.getRGB(0, 0, 120, 80, null, 0, 120),
+                cached.getRGB(0, 0, 120, 80, null, 0, 120));
+        }
+        assertSame("GVT tree has not been cached", GvtCache.get(snapshot), GvtCache.get(snapshot));
+        assertNotNull("Image has not been cached", RasterCache.get(snapshot, new Dimension(120, 80), true, 1, 1));
+        assertNull("Image has been cached for other bounds",
+            RasterCache.get(snapshot, new Dimension(80, 120), true, 1, 1));
+        assertNull("Image has been cached for the modifiable document",
+            RasterCache.get(image.getSvgDocument(), new Dimension(120, 80), true, 1, 1));
+    }
+
+    /**
+     * Test that image contents without a snapshot are painted from their current document, also after it has been
+     * modified
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testPaintModifiedDocument() throws IOException {
+        try (InputStream is = new ByteArrayInputStream(("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"20\""
+            + " height=\"20\"><rect id=\"r\" width=\"20\" height=\"20\" fill=\"red\"/></svg>").getBytes())) {
+            SvgImageContent image = new SvgImageContent(is);
+            BufferedImage before = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+            image.paint(before.createGraphics(), 20, 20);
+
+            image.getSvgDocument().getElementById("r").setAttribute("fill", "blue");
+            BufferedImage after = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+            image.paint(after.createGraphics(), 20, 20);
+
+            assertNotEquals("Modified document has not been painted", before.getRGB(10, 10), after.getRGB(10, 10));
+            assertNull("Image of a modifiable document has been cached",
+                RasterCache.get(image.getSvgDocument(), new Dimension(20, 20), true, 1, 1));
+        }
+    }
+
+    /**
+     * Test that documents painted on scaled graphics are rasterized at the device resolution
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDeviceScale() throws IOException {
+        SvgValue cell = (SvgValue)SvgCellFactory.create(SVG_ALL_WITHIN_BMP);
+        SvgImageContent image = (SvgImageContent)cell.getImageContent();
+
+        BufferedImage scaled = new BufferedImage(240, 160, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.scale(2, 2);
+        image.paint(g, 120, 80);
+        g.dispose();
+
+        RasterCache.Raster raster =
+            RasterCache.get(SvgCellContent.of(cell).getSnapshot(), new Dimension(120, 80), true, 2, 2);
+        assertNotNull("Image has not been cached for the device scale", raster);
+        assertEquals("Image has not been rendered at device resolution", 240, raster.getImage().getWidth());
+        assertEquals("Image has not been rendered at device resolution", 160, raster.getImage().getHeight());
+    }
+
+    /**
+     * Test that the declared size of documents is converted into pixels
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testIntrinsicSize() throws IOException {
+        assertEquals("Wrong size for millimeters", new Dimension(793, 1122),
+            SvgImageContent.getIntrinsicSize(SvgCellContent.parse(SVG_NON_ASCII)));
+        assertEquals("Wrong size for view box", new Dimension(40, 30), SvgImageContent.getIntrinsicSize(
+            SvgCellContent.parse("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 40 30\"/>")));
+        assertNull("Relative sizes are not declared", SvgImageContent.getIntrinsicSize(
+            SvgCellContent.parse("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100%\" height=\"10em\"/>")));
+    }
 }
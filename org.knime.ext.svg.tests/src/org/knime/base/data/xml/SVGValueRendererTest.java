@@ -48,9 +48,18 @@
  */
 package org.knime.base.data.xml;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -61,6 +70,7 @@
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.renderer.AbstractPainterDataValueRenderer;
+import org.w3c.dom.svg.SVGDocument;
 
 /**
  * Test cases for the {@link SvgValueRenderer}.
@@ -144,6 +154,64 @@ public void testGetPreferredSizesFromViewPortDimension() throws IOException {
         assertTrue(renderer.getPreferredSize(new Dimension(75, 75)).equals(new Dimension(75, 25)));
     }
 
+    /**
+     * Renderers with the uncached client property paint the image without putting it into the raster cache.
+     *
+     * @throws IOException in case the above string cannot be read as svg image.
+     */
+    @Test
+    public void testUncachedPaint() throws IOException {
+        final SvgValueRenderer renderer = createRenderer(null);
+        renderer.putClientProperty(SvgValueRenderer.CLIENT_PROPERTY_UNCACHED, Boolean.TRUE);
+        final SvgValue svgValue = new SvgCell(new ByteArrayInputStream(SVG_WITH_DIMENSIONS.getBytes("UTF-8")));
+        renderer.setValue(svgValue);
+        renderer.setSize(120, 80);
+
+        final BufferedImage image = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        renderer.paint(g);
+        g.dispose();
+
+        assertNotEquals("image should be painted", 0, image.getRGB(60, 40));
+        assertNull("image should not be cached",
+            RasterCache.get(SvgCellContent.of(svgValue).getSnapshot(), new Dimension(120, 80), true, 1, 1));
+    }
+
+    /**
+     * Cached images are shared between bounds of the same size at different positions and drawn at the position of
+     * the bounds.
+     *
+     * @throws IOException in case the above string cannot be read as svg image.
+     */
+    @Test
+    public void testCachedPaintAtDifferentPositions() throws IOException {
+        final SvgValue svgValue = new SvgCell(new ByteArrayInputStream(SVG_WITH_DIMENSIONS.getBytes("UTF-8")));
+        final SVGDocument snapshot = SvgCellContent.of(svgValue).getSnapshot();
+
+        // renderers in tables are located at the position of their cell
+        final SvgValueRenderer renderer = createRenderer(null);
+        renderer.setValue(svgValue);
+        renderer.setBounds(200, 100, 120, 80);
+        final BufferedImage image = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        renderer.paint(g);
+        g.dispose();
+        assertNotEquals("image should be painted at the origin of the renderer", 0, image.getRGB(60, 40));
+
+        final RasterCache.Raster raster = RasterCache.get(snapshot, new Dimension(120, 80), true, 1, 1);
+        assertNotNull("image should be cached", raster);
+
+        final BufferedImage translated = new BufferedImage(160, 120, BufferedImage.TYPE_INT_ARGB);
+        g = translated.createGraphics();
+        SvgValueRenderer.paintCached(snapshot, g, new Rectangle(40, 40, 120, 80), true);
+        g.dispose();
+        assertSame("image should be taken from the cache", raster,
+            RasterCache.get(snapshot, new Dimension(120, 80), true, 1, 1));
+        assertEquals("image should be translated to the position of the bounds", 0, translated.getRGB(20, 20));
+        assertArrayEquals("image should be translated to the position of the bounds",
+            image.getRGB(0, 0, 120, 80, null, 0, 120), translated.getRGB(40, 40, 120, 80, null, 0, 120));
+    }
+
     private static SvgValueRenderer createRenderer(final DataColumnProperties properties) {
         final DataColumnSpecCreator creator = new DataColumnSpecCreator("svg", SvgCell.TYPE);
         if (properties != null) {
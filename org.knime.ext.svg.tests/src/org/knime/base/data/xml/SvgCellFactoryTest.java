@@ -0,0 +1,269 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.junit.Test;
+import org.knime.base.data.xml.SvgCellFactory.Validation;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.util.LockedSupplier;
+import org.knime.core.data.xml.util.XmlDomComparer;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Testcases for {@link SvgCellFactory}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SvgCellFactoryTest {
+    private static final String SVG = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+        + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"150\" height=\"50\">"
+        + "<rect width=\"150\" height=\"50\" fill=\"lightblue\"/>"
+        + "<text x=\"75\" y=\"30\" font-size=\"12\"> 150x50 SVG </text></svg>";
+
+    private static final String SVG_REFORMATTED = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+        + "<svg:svg xmlns:svg=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"\n"
+        + "    height=\"50\" width=\"150\">\n"
+        + "  <!-- a comment -->\n"
+        + "  <svg:metadata>some metadata</svg:metadata>\n"
+        + "  <svg:rect fill=\"lightblue\" height=\"50\" width=\"150\"/>\n"
+        + "  <svg:text font-size=\"12\" x=\"75\" y=\"30\"> 150x50 SVG </svg:text>\n"
+        + "</svg:svg>\n";
+
+    /**
+     * Test that documents which only differ in comments, metadata, whitespace, namespace prefixes and attribute order
+     * have the same canonical form.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCanonicalForm() throws IOException {
+        DataCell cell = SvgCellFactory.createCanonical(SVG);
+        DataCell reformatted = SvgCellFactory.createCanonical(SVG_REFORMATTED);
+
+        String canonical = ((SvgCell)cell).getStringValue();
+        assertEquals("Canonical forms differ", canonical, ((SvgCell)reformatted).getStringValue());
+        assertFalse("Comment has not been removed", canonical.contains("comment"));
+        assertFalse("Metadata has not been removed", canonical.contains("metadata"));
+        assertTrue("Whitespace in text has not been preserved", canonical.contains("> 150x50 SVG <"));
+
+        assertEquals("Canonical cells differ", cell, reformatted);
+        assertEquals("Hash codes of canonical cells differ", cell.hashCode(), reformatted.hashCode());
+        assertEquals("Canonical cell differs from non-canonical cell", SvgCellFactory.create(SVG), cell);
+        assertNotEquals("Different canonical cells are equal", cell,
+            SvgCellFactory.createCanonical(SVG.replace("lightblue", "red")));
+    }
+
+    /**
+     * Test that canonical cells which differ only in text that is ignored by the comparison are equal, like their
+     * non-canonical counterparts.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCanonicalFormIgnoredText() throws IOException {
+        String first = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"150\" height=\"50\">"
+            + "<title>First</title><rect width=\"150\" height=\"50\"/></svg>";
+        String second = first.replace("First", "Second");
+        assertEquals("Non-canonical cells differ", SvgCellFactory.create(first), SvgCellFactory.create(second));
+        assertEquals("Canonical cells differ", SvgCellFactory.createCanonical(first),
+            SvgCellFactory.createCanonical(second));
+    }
+
+    /**
+     * Test that documents are turned into normal or blob cells depending on their serialized size.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testDocumentCellSize() throws IOException {
+        DataCell small = SvgCellFactory.create(SvgCellContent.parse(SVG));
+        assertEquals("Wrong cell type for small document", SvgCell.class, small.getClass());
+        assertEquals("Small document cell differs", SvgCellFactory.create(SVG), small);
+
+        StringBuilder buf = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"150\" height=\"50\">");
+        while (buf.length() < 2 * SvgCellFactory.DEF_MIN_BLOB_SIZE_IN_BYTES) {
+            buf.append("<rect x=\"").append(buf.length() % 150).append("\" width=\"1\" height=\"50\"/>");
+        }
+        buf.append("</svg>");
+        DataCell large = SvgCellFactory.create(SvgCellContent.parse(buf.toString()));
+        assertEquals("Wrong cell type for large document", SvgBlobCell.class, large.getClass());
+        assertEquals("Large document cell differs", SvgCellFactory.create(buf.toString()), large);
+    }
+
+    /**
+     * Test that the blob threshold is applied to the encoded size and that streamed input only ends up in blob cells
+     * if it is large.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamedCellSize() throws Exception {
+        SvgCellFactory factory = new SvgCellFactory();
+        byte[] bytes = SVG.getBytes(StandardCharsets.UTF_8);
+        assertEquals("Wrong cell type for small stream", SvgCell.class,
+            factory.createCell(new ByteArrayInputStream(bytes)).getClass());
+        assertEquals("Wrong cell type for small reader", SvgCell.class,
+            factory.createCell(new StringReader(SVG)).getClass());
+        assertEquals("Small streamed cell differs", SvgCellFactory.create(SVG),
+            factory.createCell(new ByteArrayInputStream(bytes)));
+
+        // more characters than the threshold
+        String large = SVG.replace(" 150x50 SVG ", "x".repeat(SvgCellFactory.DEF_MIN_BLOB_SIZE_IN_BYTES));
+        assertEquals("Wrong cell type for large stream", SvgBlobCell.class,
+            factory.createCell(new ByteArrayInputStream(large.getBytes(StandardCharsets.UTF_8))).getClass());
+        assertEquals("Wrong cell type for large reader", SvgBlobCell.class,
+            factory.createCell(new StringReader(large)).getClass());
+        assertEquals("Large streamed cell differs", SvgCellFactory.create(large),
+            factory.createCell(new StringReader(large)));
+
+        // fewer characters than the threshold but more bytes
+        String multiByte = SVG.replace(" 150x50 SVG ", "\u00e4".repeat(SvgCellFactory.DEF_MIN_BLOB_SIZE_IN_BYTES / 2));
+        assertEquals("Wrong cell type for multi-byte string", SvgBlobCell.class,
+            SvgCellFactory.create(multiByte).getClass());
+    }
+
+    /**
+     * Test the different validation modes for documents.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testValidation() throws IOException {
+        for (Validation validation : Validation.values()) {
+            assertEquals("Valid document differs for " + validation, SvgCellFactory.create(SVG),
+                SvgCellFactory.create(SvgCellContent.parse(SVG), validation));
+            assertEquals("Valid string differs for " + validation, SvgCellFactory.create(SVG),
+                SvgCellFactory.create(SVG, validation));
+        }
+
+        SVGDocument noSvgRoot = (SVGDocument)SVGDOMImplementation.getDOMImplementation()
+            .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "g", null);
+        assertThrows(IllegalArgumentException.class,
+            () -> SvgCellFactory.create(noSvgRoot, Validation.STRUCTURAL));
+        assertNotNull("Unvalidated document has been rejected", SvgCellFactory.create(noSvgRoot, Validation.NONE));
+
+        String noSvgRootString = "<g xmlns=\"http://www.w3.org/2000/svg\"/>";
+        assertThrows(IllegalArgumentException.class,
+            () -> SvgCellFactory.create(noSvgRootString, Validation.STRUCTURAL));
+        assertNotNull("Unvalidated string has been rejected",
+            SvgCellFactory.create(noSvgRootString, Validation.NONE));
+    }
+
+    /**
+     * Test that document copies are independent of the cell and of each other and that readers share one snapshot.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testDocumentCopy() throws IOException {
+        for (DataCell cell : new DataCell[]{SvgCellFactory.create(SVG),
+            SvgCellFactory.create(SvgCellContent.parse(SVG))}) {
+            SvgValue value = (SvgValue)cell;
+            SVGDocument copy = value.getDocumentCopy();
+            assertNotSame("Copy is not a new document", copy, value.getDocumentCopy());
+            try (LockedSupplier<SVGDocument> supplier = value.getDocumentSupplier()) {
+                assertNotSame("Copy is the cell's document", supplier.get(), copy);
+                assertTrue("Copy differs from the cell's document",
+                    XmlDomComparer.equals(supplier.get(), copy, SvgCell.SVG_XML_CUSTOMIZER));
+            }
+
+            copy.getDocumentElement().setAttribute("width", "10");
+            assertEquals("Modifying a copy changed the cell", SvgCellFactory.create(SVG), cell);
+
+            SvgCellContent content = SvgCellContent.of(value);
+            assertSame("Snapshot is parsed again", content.getSnapshot(), content.getSnapshot());
+            assertNotSame("Copy is the snapshot", content.getSnapshot(), copy);
+        }
+    }
+
+    /**
+     * Test that two threads comparing the same cells in opposite order do not deadlock while one of them holds a
+     * document lock.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testEqualsInOppositeOrder() throws Exception {
+        // equal, but with different serialized forms, so that the documents are compared structurally
+        DataCell first = SvgCellFactory.create(SvgCellContent.parse(SVG), Validation.NONE);
+        String reordered = SVG.replace("<rect width=\"150\" height=\"50\" fill=\"lightblue\"/>",
+            "<rect fill=\"lightblue\" height=\"50\" width=\"150\"/>");
+        DataCell second = SvgCellFactory.create(SvgCellContent.parse(reordered), Validation.NONE);
+        first.hashCode();
+        second.hashCode();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> reverse;
+            try (LockedSupplier<SVGDocument> supplier = ((SvgValue)first).getDocumentSupplier()) {
+                reverse = executor.submit(() -> second.equals(first));
+                Thread.sleep(100);
+                assertTrue("Equal cells differ", first.equals(second));
+            }
+            assertTrue("Equal cells differ in reverse order", reverse.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
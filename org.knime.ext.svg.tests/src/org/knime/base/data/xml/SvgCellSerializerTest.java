@@ -0,0 +1,308 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataInput;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.container.LongUTFDataInputStream;
+import org.knime.core.data.container.LongUTFDataOutputStream;
+import org.knime.core.data.def.DefaultRow;
+
+/**
+ * Testcases for the serializers of {@link SvgCell} and {@link SvgBlobCell}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SvgCellSerializerTest {
+    private static final String SVG = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+        + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"150\" height=\"50\">"
+        + "<rect width=\"150\" height=\"50\" fill=\"lightblue\"/>"
+        + "<text x=\"75\" y=\"30\" font-size=\"12\">é❤</text></svg>";
+
+    /**
+     * Test that a cell survives a round trip through the binary format.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testRoundTrip() throws IOException {
+        SvgCell cell = new SvgCell(SVG);
+        SvgCell copy = new SvgCell.SvgSerializer().deserialize(input(serialize(cell)));
+
+        assertEquals("Deserialized cell differs", cell, copy);
+        assertEquals("String value differs", cell.getStringValue(), copy.getStringValue());
+    }
+
+    /**
+     * Test that the hash code is persisted and that it matches the hash code of an equal document that differs only
+     * in comments, whitespace and attribute order.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testHashCode() throws IOException {
+        SvgCell cell = new SvgCell(SVG);
+        SvgCell copy = new SvgCell.SvgSerializer().deserialize(input(serialize(cell)));
+        assertEquals("Hash code of deserialized cell differs", cell.hashCode(), copy.hashCode());
+
+        SvgCell reformatted = new SvgCell("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+            + "<svg height=\"50\" width=\"150\" xmlns=\"http://www.w3.org/2000/svg\">\n"
+            + "  <!-- a comment -->\n"
+            + "  <rect fill=\"lightblue\" height=\"50\" width=\"150\"/>\n"
+            + "  <text font-size=\"12\" x=\"75\" y=\"30\">é❤</text>\n"
+            + "</svg>\n");
+        assertEquals("Equal documents are not equal", cell, reformatted);
+        assertEquals("Hash codes of equal documents differ", cell.hashCode(), reformatted.hashCode());
+    }
+
+    /**
+     * Test that the preferred size is persisted, both if it is declared by the document and if it is taken from the
+     * bounds of the image.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPreferredSize() throws IOException {
+        SvgCell cell = (SvgCell)SvgCellFactory.create(SVG);
+        SvgCell copy = new SvgCell.SvgSerializer().deserialize(input(serialize(cell)));
+        assertEquals("Declared size is wrong", new Dimension(150, 50), cell.getContent().getPreferredSize());
+        assertEquals("Declared size has not been persisted", new Dimension(150, 50),
+            copy.getContent().getPreferredSize());
+
+        SvgCell undeclared = (SvgCell)SvgCellFactory.create(SvgCellContent
+            .parse("<svg xmlns=\"http://www.w3.org/2000/svg\"><rect x=\"10\" width=\"30\" height=\"20\"/></svg>"));
+        copy = new SvgCell.SvgSerializer().deserialize(input(serialize(undeclared)));
+        assertEquals("Image size has not been persisted", undeclared.getImageContent().getPreferredSize(),
+            copy.getContent().getPreferredSize());
+    }
+
+    /**
+     * Test that new cells take their preferred size from the size declared by the document, while cells written in
+     * the legacy format keep the bounds of the image as their preferred size, also after being written in the binary
+     * format.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testLegacyPreferredSize() throws IOException {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"200\" height=\"100\">"
+            + "<rect width=\"20\" height=\"10\"/></svg>";
+        SvgCell cell = (SvgCell)SvgCellFactory.create(svg);
+        assertEquals("Declared size is not used for new cells", new Dimension(200, 100),
+            cell.getContent().getPreferredSize());
+        assertEquals("Declared size is not used for new image contents", new Dimension(200, 100),
+            cell.getImageContent().getPreferredSize());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeUTF(svg);
+        }
+        SvgCell legacy = new SvgCell.SvgSerializer().deserialize(input(bos.toByteArray()));
+        // written before the size has been determined
+        SvgCell copy = new SvgCell.SvgSerializer().deserialize(input(serialize(legacy)));
+        assertEquals("Bounds are not used for legacy cells", new Dimension(20, 10),
+            legacy.getContent().getPreferredSize());
+        assertEquals("Bounds are not used for the image contents of legacy cells", new Dimension(20, 10),
+            legacy.getImageContent().getPreferredSize());
+        assertEquals("Bounds are not used for rewritten legacy cells", new Dimension(20, 10),
+            copy.getContent().getPreferredSize());
+
+        // written after the size has been determined
+        copy = new SvgCell.SvgSerializer().deserialize(input(serialize(legacy)));
+        assertEquals("Bounds are not used for rewritten legacy cells", new Dimension(20, 10),
+            copy.getImageContent().getPreferredSize());
+    }
+
+    /**
+     * Test that large documents, which exceed the limits of modified UTF-8 strings and are compressed, survive a
+     * round trip through the binary format.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testRoundTripLargeDocument() throws IOException {
+        String svg = largeDocument();
+        SvgBlobCell cell = new SvgBlobCell(svg);
+        byte[] serialized = serialize(cell);
+        assertTrue("Large document was not compressed", serialized.length < svg.length());
+
+        SvgBlobCell copy = new SvgBlobCell.SvgSerializer().deserialize(input(serialized));
+        assertEquals("Deserialized cell differs", cell, copy);
+    }
+
+    /**
+     * Test that cells written in the legacy format can still be read.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testReadLegacyFormat() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeUTF(SVG);
+        }
+
+        SvgCell copy = new SvgCell.SvgSerializer().deserialize(input(bos.toByteArray()));
+        assertEquals("String value differs", SVG, copy.getStringValue());
+        assertEquals("Deserialized cell differs", new SvgCell(SVG), copy);
+    }
+
+    /**
+     * Test that large documents in the legacy format, which KNIME's cell streams write as long UTF strings, can still
+     * be read.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testReadLegacyLargeDocument() throws IOException {
+        String svg = largeDocument();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            new LongUTFDataOutputStream(out).writeUTF(svg);
+        }
+
+        SvgCellContent content = SvgCellContent
+            .read(new LongUTFDataInputStream(new DataInputStream(new ByteArrayInputStream(bos.toByteArray()))));
+        assertEquals("String value differs", svg, content.getStringValue());
+    }
+
+    /**
+     * Test that large documents survive a round trip through KNIME's cell streams by writing them into a table that
+     * keeps no cells in memory.
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testRoundTripLargeDocumentThroughTable() {
+        SvgBlobCell cell = new SvgBlobCell(largeDocument());
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("SVG", SvgBlobCell.TYPE).createSpec());
+        DataContainer container = new DataContainer(spec, false, 0);
+        container.addRowToTable(new DefaultRow(RowKey.createRowKey(0L), cell));
+        container.close();
+
+        try (CloseableRowIterator it = container.getTable().iterator()) {
+            DataCell copy = it.next().getCell(0);
+            assertEquals("Deserialized cell differs", cell, copy);
+            assertEquals("String value differs", cell.getStringValue(), ((StringValue)copy).getStringValue());
+        }
+    }
+
+    private static String largeDocument() {
+        StringBuilder buf =
+            new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1000\" height=\"1000\">");
+        for (int i = 0; i < 5000; i++) {
+            buf.append("<rect x=\"").append(i % 1000).append("\" y=\"").append(i / 5)
+                .append("\" width=\"1\" height=\"1\" fill=\"red\"/>");
+        }
+        buf.append("</svg>");
+        assertTrue("Test document too small", buf.length() > 65535);
+        return buf.toString();
+    }
+
+    private static byte[] serialize(final SvgCell cell) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TestOutput out = new TestOutput(bos)) {
+            new SvgCell.SvgSerializer().serialize(cell, out);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] serialize(final SvgBlobCell cell) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TestOutput out = new TestOutput(bos)) {
+            new SvgBlobCell.SvgSerializer().serialize(cell, out);
+        }
+        return bos.toByteArray();
+    }
+
+    private static DataCellDataInput input(final byte[] data) {
+        return new TestInput(new ByteArrayInputStream(data));
+    }
+
+    private static final class TestOutput extends DataOutputStream implements DataCellDataOutput {
+        TestOutput(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void writeDataCell(final DataCell cell) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class TestInput extends DataInputStream implements DataCellDataInput {
+        TestInput(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public DataCell readDataCell() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Testcases for {@link PngEncoder}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PngEncoderTest {
+    /**
+     * Test that encoded images are decoded to the same pixels, also when the encoder's image is reused.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        PngEncoder encoder = new PngEncoder(Renderer2ImageSettings.DEFAULT_PNG_COMPRESSION_LEVEL);
+        try {
+            for (int i = 0; i < 2; i++) {
+                BufferedImage image = encoder.getImage(37, 23);
+                assertTrue("Reused image has not been cleared", image.getRGB(10, 10) == 0);
+                Graphics2D g = image.createGraphics();
+                g.setColor(new Color(200, 30, 90, 128));
+                g.fillOval(2, 3, 30, 15);
+                g.setColor(Color.BLUE);
+                g.drawLine(0, 0, 36, 22);
+                g.dispose();
+
+                assertPixelsEqual(image, ImageIO.read(new ByteArrayInputStream(encoder.encode(image))));
+            }
+
+            BufferedImage other = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+            other.setRGB(3, 3, 0xff00ff);
+            assertPixelsEqual(other, ImageIO.read(new ByteArrayInputStream(encoder.encode(other))));
+        } finally {
+            encoder.dispose();
+        }
+    }
+
+    /**
+     * Test that opaque images are written without alpha channel and that reduced quality only changes colors slightly
+     * while making images smaller.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testOpaqueAndReducedQuality() throws IOException {
+        byte[] lossless = null;
+        for (int quality : new int[]{100, 0}) {
+            PngEncoder encoder = new PngEncoder(Renderer2ImageSettings.DEFAULT_PNG_COMPRESSION_LEVEL, quality);
+            try {
+                BufferedImage image = encoder.getImage(60, 40);
+                Graphics2D g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, 60, 40);
+                g.setColor(new Color(200, 30, 90));
+                g.fillOval(2, 3, 50, 30);
+                g.dispose();
+
+                byte[] png = encoder.encode(image);
+                assertEquals("Opaque image has not been written as RGB", 2, png[25]);
+                BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+                if (quality == 100) {
+                    assertPixelsEqual(image, decoded);
+                    lossless = png;
+                } else {
+                    assertTrue("Reduced quality image is not smaller", png.length < lossless.length);
+                    for (int y = 0; y < 40; y++) {
+                        for (int x = 0; x < 60; x++) {
+                            int expected = image.getRGB(x, y);
+                            int actual = decoded.getRGB(x, y);
+                            for (int shift = 0; shift < 32; shift += 8) {
+                                assertTrue("Color changed too much",
+                                    Math.abs(((expected >> shift) & 0xff) - ((actual >> shift) & 0xff)) <= 9);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                encoder.dispose();
+            }
+        }
+    }
+
+    /**
+     * Test that supersampled images are reduced by averaging blocks of pixels weighted by their alpha.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testDownsample() throws IOException {
+        PngEncoder encoder = new PngEncoder(Renderer2ImageSettings.DEFAULT_PNG_COMPRESSION_LEVEL);
+        try {
+            BufferedImage image = encoder.getImage(4, 2);
+            image.setRGB(0, 0, 0xffff0000);
+            image.setRGB(1, 0, 0xffff0000);
+            image.setRGB(0, 1, 0xff0000ff);
+            image.setRGB(1, 1, 0xff0000ff);
+            image.setRGB(2, 0, 0x80ffffff);
+
+            BufferedImage reduced = encoder.downsample(image, 2);
+            assertEquals("Wrong width", 2, reduced.getWidth());
+            assertEquals("Wrong height", 1, reduced.getHeight());
+            assertEquals("Wrong averaged color", 0xff800080, reduced.getRGB(0, 0));
+            assertEquals("Transparent pixels darken the color", 0x20ffffff, reduced.getRGB(1, 0));
+            assertPixelsEqual(reduced, ImageIO.read(new ByteArrayInputStream(encoder.encode(reduced))));
+        } finally {
+            encoder.dispose();
+        }
+    }
+
+    private static void assertPixelsEqual(final BufferedImage expected, final BufferedImage actual) {
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        assertArrayEquals("Decoded image differs", expected.getRGB(0, 0, w, h, null, 0, w),
+            actual.getRGB(0, 0, w, h, null, 0, w));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgCellFactory.Validation;
+import org.knime.base.data.xml.SvgValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Testcases for {@link RenderCache}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RenderCacheTest {
+    /** Folder for the cache directory. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that keys depend on the cell's content and on the settings.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testKey() throws IOException {
+        Path dir = m_tempFolder.newFolder().toPath();
+        RenderCache cache = new RenderCache(dir, 1024);
+
+        assertEquals("Equal cells have different keys", cache.key(new StringCell("a"), "PNG"),
+            cache.key(new StringCell("a"), "PNG"));
+        assertNotEquals("Different cells have equal keys", cache.key(new StringCell("a"), "PNG"),
+            cache.key(new StringCell("b"), "PNG"));
+        assertNotEquals("Different settings give equal keys", cache.key(new StringCell("a"), "PNG"),
+            cache.key(new StringCell("a"), "SVG"));
+    }
+
+    /**
+     * Test that entries are persisted and that least recently used entries are evicted.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPersistenceAndEviction() throws IOException {
+        Path dir = m_tempFolder.newFolder().toPath();
+        RenderCache cache = new RenderCache(dir, 25);
+        String first = cache.key(new StringCell("first"), "PNG");
+        String second = cache.key(new StringCell("second"), "PNG");
+        String third = cache.key(new StringCell("third"), "PNG");
+
+        assertNull("Empty cache returned an entry", cache.get(first));
+        cache.put(first, new byte[10]);
+        cache.put(second, new byte[10]);
+        assertArrayEquals("Wrong cached data", new byte[10], cache.get(first));
+        cache.put(third, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertNull("Least recently used entry has not been evicted", cache.get(second));
+
+        RenderCache reopened = new RenderCache(dir, 25);
+        assertArrayEquals("Entry has not been persisted", new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+            reopened.get(third));
+        assertArrayEquals("Entry has not been persisted", new byte[10], reopened.get(first));
+        assertNull("Evicted entry has not been deleted", reopened.get(second));
+    }
+
+    /**
+     * Test that the key of an SVG cell does not change when its hash code and preferred size have been computed.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSvgKeyIndependentOfComputedState() throws IOException {
+        RenderCache cache = new RenderCache(m_tempFolder.newFolder().toPath(), 1024);
+        DataCell svgCell = SvgCellFactory.create("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"20\" height=\"10\">"
+            + "<rect width=\"20\" height=\"10\"/></svg>", Validation.NONE);
+
+        String key = cache.key(svgCell, "PNG");
+        assertNotNull("No key for SVG cell", key);
+        svgCell.hashCode();
+        SvgCellFactory.getPreferredSize((SvgValue)svgCell);
+        assertEquals("Key changed after hash code and preferred size have been computed", key,
+            cache.key(svgCell, "PNG"));
+    }
+
+    /**
+     * Test that settings larger than 64KB can be part of a key.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testLargeSettings() throws IOException {
+        RenderCache cache = new RenderCache(m_tempFolder.newFolder().toPath(), 1024);
+        char[] settings = new char[100 * 1024];
+        Arrays.fill(settings, 'x');
+        assertNotNull("No key for large settings", cache.key(new StringCell("a"), new String(settings)));
+    }
+}
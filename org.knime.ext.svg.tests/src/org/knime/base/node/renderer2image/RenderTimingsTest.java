@@ -0,0 +1,83 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.knime.core.data.RowKey;
+
+/**
+ * Testcases for {@link RenderTimings}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RenderTimingsTest {
+    /**
+     * Test that percentiles use the nearest rank and that the slowest row is found.
+     */
+    @Test
+    public void testPercentiles() {
+        RenderTimings timings = new RenderTimings();
+        assertArrayEquals("Wrong times without rows", new double[]{0, 0}, timings.getRenderMillis(50, 100), 0);
+        assertNull("Slowest row without rows", timings.getSlowestRow());
+
+        for (int i = 1; i <= 2000; i++) {
+            RenderTimings.Row row = new RenderTimings.Row();
+            row.addRender(i * 1_000_000L);
+            row.addEncode((i == 7) ? 5_000_000_000L : 1_000_000L);
+            timings.add(RowKey.createRowKey(i - 1L), row);
+        }
+
+        assertEquals("Wrong number of rows", 2000, timings.getCount());
+        assertArrayEquals("Wrong render times", new double[]{1000, 1900, 1980, 2000},
+            timings.getRenderMillis(50, 95, 99, 100), 0);
+        assertArrayEquals("Wrong encode times", new double[]{1, 1, 1, 5000}, timings.getEncodeMillis(50, 95, 99, 100),
+            0);
+        assertEquals("Wrong slowest row", RowKey.createRowKey(6L), timings.getSlowestRow());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.knime.core.data.RowKey;
+
+/**
+ * Testcases for {@link RenderWatchdog}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RenderWatchdogTest {
+    /**
+     * Test that tasks exceeding the budget are halted and counted and that threads can be used again afterwards.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBudget() throws Exception {
+        RenderWatchdog watchdog = new RenderWatchdog(100, 1);
+        try {
+            assertEquals("Wrong result", "fast", watchdog.call(RowKey.createRowKey(0L), () -> "fast"));
+            assertNull("Row exceeded budget unexpectedly", watchdog.getFirstExceededRow());
+
+            CountDownLatch halted = new CountDownLatch(1);
+            try {
+                watchdog.call(RowKey.createRowKey(1L), () -> {
+                    while (!RenderWatchdog.isHalted()) {
+                        Thread.sleep(5);
+                    }
+                    halted.countDown();
+                    return "slow";
+                });
+                fail("Slow task has not exceeded the budget");
+            } catch (TimeoutException ex) {
+                // expected
+            }
+            assertTrue("Slow task has not been halted", halted.await(10, TimeUnit.SECONDS));
+            assertEquals("Wrong number of exceeded rows", 1, watchdog.getExceededCount());
+            assertEquals("Wrong exceeded row", RowKey.createRowKey(1L), watchdog.getFirstExceededRow());
+
+            assertFalse("Reused thread is still halted", watchdog.call(RowKey.createRowKey(2L),
+                RenderWatchdog::isHalted));
+        } finally {
+            watchdog.shutdown();
+        }
+    }
+
+    /**
+     * Test that no further task is started while the maximum number of halted tasks is still running.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testHaltedTaskLimit() throws Exception {
+        RenderWatchdog watchdog = new RenderWatchdog(100, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            try {
+                // ignores the halted state like renderers that are not based on Batik
+                watchdog.call(RowKey.createRowKey(0L), () -> release.await(10, TimeUnit.SECONDS));
+                fail("Blocked task has not exceeded the budget");
+            } catch (TimeoutException ex) {
+                // expected
+            }
+
+            AtomicBoolean started = new AtomicBoolean();
+            try {
+                watchdog.call(RowKey.createRowKey(1L), () -> started.getAndSet(true));
+                fail("Task has been started although a halted task is still running");
+            } catch (TimeoutException ex) {
+                // expected
+            }
+            assertFalse("Task has been started although a halted task is still running", started.get());
+            assertEquals("Wrong number of exceeded rows", 2, watchdog.getExceededCount());
+
+            release.countDown();
+            assertEquals("Wrong result after halted task has finished", "fast",
+                watchdog.call(RowKey.createRowKey(2L), () -> "fast"));
+        } finally {
+            release.countDown();
+            watchdog.shutdown();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgValue;
+import org.knime.base.data.xml.SvgValueRenderer;
+import org.knime.base.node.renderer2image.Renderer2ImageSettings.ImageType;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnProperties;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.data.renderer.DefaultDataValueRenderer;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Testcases for {@link Renderer2ImageNodeModel}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class Renderer2ImageNodeModelTest {
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"20\" height=\"10\">"
+        + "<rect width=\"20\" height=\"10\" fill=\"red\"/></svg>";
+
+    /**
+     * Test that SVG cells rendered with the SVG renderer are passed on unchanged.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSvgCellPassedOn() throws IOException {
+        DataCell svgCell = SvgCellFactory.create(SVG);
+        SvgValueRenderer renderer =
+            new SvgValueRenderer(new DataColumnSpecCreator("svg", SvgCellFactory.TYPE).createSpec());
+
+        assertSame("SVG cell has been copied", svgCell,
+            new Renderer2ImageNodeModel().createSvgCell(svgCell, renderer, new SvgGenerator()));
+    }
+
+    /**
+     * Test that the same value results in the same document when the generator is reused.
+     */
+    @Test
+    public void testGeneratorReuse() {
+        Renderer2ImageNodeModel model = new Renderer2ImageNodeModel();
+        SvgGenerator generator = new SvgGenerator();
+        DataCell value = new StringCell("KNIME");
+
+        DataCell first = model.createSvgCell(value, new DefaultDataValueRenderer(), generator);
+        DataCell second = model.createSvgCell(value, new DefaultDataValueRenderer(), generator);
+        assertTrue("No SVG cell created", first instanceof SvgValue);
+        assertEquals("Reused generator created a different document", first, second);
+    }
+
+    /**
+     * Test that rows keep their order and get the images of their own values when they are rendered in parallel.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallelRowOrder() throws Exception {
+        ExecutionContext exec = createExecutionContext();
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("value", StringCell.TYPE).createSpec());
+        BufferedDataContainer container = exec.createDataContainer(spec);
+        int rowCount = 200;
+        for (int i = 0; i < rowCount; i++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), new StringCell("row " + i)));
+        }
+        container.close();
+
+        Renderer2ImageNodeModel model = createModel("value", "Default");
+        BufferedDataTable out = model.execute(new BufferedDataTable[]{container.getTable()}, exec)[0];
+        SvgGenerator generator = new SvgGenerator();
+        int i = 0;
+        try (CloseableRowIterator it = out.iterator()) {
+            while (it.hasNext()) {
+                DataRow row = it.next();
+                assertEquals("Wrong row order", RowKey.createRowKey((long)i), row.getKey());
+                assertEquals("Wrong image for row " + i,
+                    model.createSvgCell(new StringCell("row " + i), new DefaultDataValueRenderer(), generator),
+                    row.getCell(1));
+                i++;
+            }
+        }
+        assertEquals("Wrong number of rows", rowCount, i);
+    }
+
+    /**
+     * Test that the preferred size in the properties of a new SVG column is the largest size of its images, also if
+     * the cells are passed on and rendered in parallel.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPreferredSizeOfPassedOnCells() throws Exception {
+        ExecutionContext exec = createExecutionContext();
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("svg", SvgCellFactory.TYPE).createSpec());
+        BufferedDataContainer container = exec.createDataContainer(spec);
+        container.addRowToTable(new DefaultRow(RowKey.createRowKey(0L), SvgCellFactory.create(SVG)));
+        container.addRowToTable(new DefaultRow(RowKey.createRowKey(1L),
+            SvgCellFactory.create("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"30\" height=\"5\">"
+                + "<rect width=\"30\" height=\"5\"/></svg>")));
+        container.close();
+
+        Renderer2ImageNodeModel model = createModel("svg", "SVG renderer");
+        DataColumnProperties props = model.execute(new BufferedDataTable[]{container.getTable()}, exec)[0]
+            .getDataTableSpec().getColumnSpec("Image").getProperties();
+        assertEquals("Wrong preferred width", "30", props.getProperty(SvgValueRenderer.OPTION_PREFERRED_WIDTH));
+        assertEquals("Wrong preferred height", "10", props.getProperty(SvgValueRenderer.OPTION_PREFERRED_HEIGHT));
+    }
+
+    /**
+     * Test that replaced columns keep their position if several images are created for each of them, the images of the
+     * additional types and the timing column are appended.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReplacedColumnPositions() throws Exception {
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("first", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("kept", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("second", StringCell.TYPE).createSpec());
+        Renderer2ImageSettings settings = new Renderer2ImageSettings();
+        // the additional column comes first in the input, the columns are moved in the order of their position
+        settings.columnName("second");
+        settings.additionalColumnNames("first");
+        settings.rendererDescription("Default");
+        settings.imageType(ImageType.Svg);
+        settings.additionalImageTypes(ImageType.Png);
+        settings.pngSize(new Dimension(100, 100));
+        settings.replaceColumn(true);
+        settings.measureRenderTimes(true);
+        settings.appendRenderTimeColumn(true);
+        NodeSettings nodeSettings = new NodeSettings("test");
+        settings.saveSettings(nodeSettings);
+        Renderer2ImageNodeModel model = new Renderer2ImageNodeModel();
+        model.loadValidatedSettingsFrom(nodeSettings);
+
+        DataTableSpec outSpec = model.configure(new DataTableSpec[]{spec})[0];
+        assertEquals("Wrong number of columns", 6, outSpec.getNumColumns());
+        assertTrue("Wrong column at the position of the first replaced column: " + outSpec.getColumnSpec(0),
+            outSpec.getColumnSpec(0).getName().startsWith("first ")
+                && outSpec.getColumnSpec(0).getName().endsWith("(SVG)"));
+        assertEquals("Column that is not replaced has been moved", "kept", outSpec.getColumnSpec(1).getName());
+        assertTrue("Wrong column at the position of the second replaced column: " + outSpec.getColumnSpec(2),
+            outSpec.getColumnSpec(2).getName().startsWith("second ")
+                && outSpec.getColumnSpec(2).getName().endsWith("(SVG)"));
+        assertTrue("Wrong appended column: " + outSpec.getColumnSpec(3),
+            outSpec.getColumnSpec(3).getName().startsWith("second ")
+                && outSpec.getColumnSpec(3).getName().endsWith("(PNG)"));
+        assertTrue("Wrong appended column: " + outSpec.getColumnSpec(4),
+            outSpec.getColumnSpec(4).getName().startsWith("first ")
+                && outSpec.getColumnSpec(4).getName().endsWith("(PNG)"));
+        assertEquals("Timing column is not the last one", "Render time (ms)", outSpec.getColumnSpec(5).getName());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static ExecutionContext createExecutionContext() {
+        return new ExecutionContext(new DefaultNodeProgressMonitor(),
+            new Node((NodeFactory)new Renderer2ImageNodeFactory()), SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+            NotInWorkflowDataRepository.newInstance());
+    }
+
+    /**
+     * Creates a model that renders the column in parallel into a new SVG column named "Image".
+     */
+    private static Renderer2ImageNodeModel createModel(final String columnName, final String rendererDescription)
+        throws Exception {
+        Renderer2ImageSettings settings = new Renderer2ImageSettings();
+        settings.columnName(columnName);
+        settings.rendererDescription(rendererDescription);
+        settings.imageType(ImageType.Svg);
+        settings.pngSize(new Dimension(100, 100));
+        settings.newColumnName("Image");
+        settings.parallelExecution(true);
+        NodeSettings nodeSettings = new NodeSettings("test");
+        settings.saveSettings(nodeSettings);
+        Renderer2ImageNodeModel model = new Renderer2ImageNodeModel();
+        model.loadValidatedSettingsFrom(nodeSettings);
+        return model;
+    }
+}
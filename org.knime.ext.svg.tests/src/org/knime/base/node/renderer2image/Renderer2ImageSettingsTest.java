@@ -0,0 +1,152 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+import org.knime.base.node.renderer2image.Renderer2ImageSettings.ImageType;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettings;
+
+/**
+ * Testcases for {@link Renderer2ImageSettings}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class Renderer2ImageSettingsTest {
+    /**
+     * Test that further columns and image types are saved and loaded, and that settings without them load as before.
+     *
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    @Test
+    public void testAdditionalColumnsAndTypes() throws InvalidSettingsException {
+        Renderer2ImageSettings settings = createSettings();
+        settings.additionalColumnNames("b", "c");
+        settings.additionalImageTypes(ImageType.Svg);
+        NodeSettings ns = new NodeSettings("test");
+        settings.saveSettings(ns);
+
+        Renderer2ImageSettings loaded = new Renderer2ImageSettings();
+        loaded.loadSettings(ns);
+        assertArrayEquals("Wrong further columns", new String[]{"b", "c"}, loaded.additionalColumnNames());
+        assertArrayEquals("Wrong further image types", new ImageType[]{ImageType.Svg},
+            loaded.additionalImageTypes());
+
+        ns = new NodeSettings("test");
+        ns.addString("columnName", "a");
+        ns.addString("rendererDescription", "Default");
+        ns.addString("imageType", ImageType.Png.name());
+        ns.addInt("pngWidth", 100);
+        ns.addInt("pngHeight", 100);
+        loaded.loadSettings(ns);
+        assertEquals("Further columns in old settings", 0, loaded.additionalColumnNames().length);
+        assertEquals("Further image types in old settings", 0, loaded.additionalImageTypes().length);
+    }
+
+    /**
+     * Test that an image type must not be selected twice.
+     *
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    @Test(expected = InvalidSettingsException.class)
+    public void testDuplicateImageType() throws InvalidSettingsException {
+        Renderer2ImageSettings settings = createSettings();
+        settings.additionalImageTypes(ImageType.Png);
+        NodeSettings ns = new NodeSettings("test");
+        settings.saveSettings(ns);
+        new Renderer2ImageSettings().loadSettings(ns);
+    }
+
+    /**
+     * Checks that PNG images whose supersampled size does not fit into an array are rejected, unless no PNG images
+     * are created.
+     *
+     * @throws InvalidSettingsException if the settings are invalid
+     */
+    @Test
+    public void testPngImageSizeOverflow() throws InvalidSettingsException {
+        Renderer2ImageSettings settings = createSettings();
+        settings.pngSize(new Dimension(20000, 20000));
+        settings.pngScale(2);
+        settings.pngSupersampling(4);
+        NodeSettings ns = new NodeSettings("test");
+        settings.saveSettings(ns);
+        try {
+            new Renderer2ImageSettings().loadSettings(ns);
+            fail("Too large PNG images have not been rejected");
+        } catch (InvalidSettingsException ex) {
+            assertTrue("Unexpected message: " + ex.getMessage(), ex.getMessage().contains("too large"));
+        }
+
+        settings.imageType(ImageType.Svg);
+        ns = new NodeSettings("test");
+        settings.saveSettings(ns);
+        new Renderer2ImageSettings().loadSettings(ns);
+
+        settings.pngSize(new Dimension(1000, 1000));
+        settings.imageType(ImageType.Png);
+        ns = new NodeSettings("test");
+        settings.saveSettings(ns);
+        Renderer2ImageSettings loaded = new Renderer2ImageSettings();
+        loaded.loadSettings(ns);
+        assertEquals("Unexpected PNG image size", new Dimension(2000, 2000), loaded.pngImageSize());
+    }
+
+    private static Renderer2ImageSettings createSettings() {
+        Renderer2ImageSettings settings = new Renderer2ImageSettings();
+        settings.columnName("a");
+        settings.rendererDescription("Default");
+        settings.imageType(ImageType.Png);
+        settings.pngSize(new Dimension(100, 100));
+        return settings;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Bounded cache for GVT trees built from the read-only snapshots of SVG cells, which are never modified. Documents that
+ * may still be modified, such as the ones handed out by document suppliers, must not be used, because their trees
+ * would become stale. Documents are referenced weakly and trees softly, so that the cache never keeps them in memory.
+ * The number of entries can be set with the system property <code>org.knime.svggvtcachesize</code>.
+ *
+ * <p>
+ * GVT trees are not thread-safe, callers must synchronize on the returned root node while painting it or querying its
+ * bounds.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class GvtCache {
+    private static final int CACHE_SIZE = Integer.getInteger("org.knime.svggvtcachesize", 64);
+
+    private static final UserAgent UA = new UserAgentAdapter();
+
+    private static final Map<DocumentKey, SoftReference<GraphicsNode>> CACHE =
+        new LinkedHashMap<DocumentKey, SoftReference<GraphicsNode>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<DocumentKey, SoftReference<GraphicsNode>> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private GvtCache() {
+    }
+
+    /**
+     * Returns the GVT tree for the passed document. The tree is built if it is not in the cache.
+     *
+     * @param doc the snapshot of an SVG cell
+     * @return the root of the GVT tree, may be <code>null</code> if the document does not contain an image
+     */
+    static GraphicsNode get(final SVGDocument doc) {
+        DocumentKey key = new DocumentKey(doc);
+        GraphicsNode gvtRoot = lookup(key);
+        if (gvtRoot != null) {
+            return gvtRoot;
+        }
+
+        // building the tree attaches a CSS engine to the document, therefore builds must not run concurrently
+        synchronized (doc) {
+            gvtRoot = lookup(key);
+            if (gvtRoot == null) {
+                gvtRoot = build(doc);
+                if (gvtRoot != null) {
+                    synchronized (CACHE) {
+                        CACHE.put(key, new SoftReference<>(gvtRoot));
+                    }
+                }
+            }
+        }
+        return gvtRoot;
+    }
+
+    /**
+     * Builds a new GVT tree for the passed document without using the cache.
+     *
+     * @param doc an SVG document
+     * @return the root of the GVT tree, may be <code>null</code> if the document does not contain an image
+     */
+    static GraphicsNode build(final SVGDocument doc) {
+        GVTBuilder gvtBuilder = new GVTBuilder();
+        BridgeContext bridgeContext = new BridgeContext(UA);
+        return gvtBuilder.build(bridgeContext, doc);
+    }
+
+    private static GraphicsNode lookup(final DocumentKey key) {
+        synchronized (CACHE) {
+            SoftReference<GraphicsNode> ref = CACHE.get(key);
+            if (ref == null) {
+                return null;
+            }
+            GraphicsNode gvtRoot = ref.get();
+            if (gvtRoot == null) {
+                CACHE.remove(key);
+            }
+            return gvtRoot;
+        }
+    }
+
+    /**
+     * Weak key that compares documents by identity.
+     */
+    private static final class DocumentKey extends WeakReference<SVGDocument> {
+        private final int m_hash;
+
+        DocumentKey(final SVGDocument doc) {
+            super(doc);
+            m_hash = System.identityHashCode(doc);
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof DocumentKey)) {
+                return false;
+            }
+            SVGDocument doc = get();
+            return (doc != null) && (doc == ((DocumentKey)obj).get());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Least recently used cache for rasterized SVG documents, so that documents which are painted repeatedly with the same
+ * size and device scale, e.g. in table views, are only rendered once, wherever they are drawn. Only the read-only
+ * snapshots of SVG cells, which are never modified, may be used. The cache is bounded by the number of bytes of all
+ * cached images which can be set with the system property <code>org.knime.svgrastercachesize</code> (default 32MB).
+ * Documents are referenced weakly and their images are dropped once the documents have been garbage collected.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RasterCache {
+    private static final long MAX_BYTES = Long.getLong("org.knime.svgrastercachesize", 32L * 1024 * 1024);
+
+    private static final Map<Key, Raster> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final ReferenceQueue<SVGDocument> QUEUE = new ReferenceQueue<>();
+
+    private static long totalBytes;
+
+    private RasterCache() {
+    }
+
+    /**
+     * A rasterized image together with its offset relative to the origin of the bounds in which it is drawn and the
+     * device scale it has been rendered with.
+     */
+    static final class Raster {
+        private final BufferedImage m_image;
+
+        private final int m_x;
+
+        private final int m_y;
+
+        private final double m_scaleX;
+
+        private final double m_scaleY;
+
+        /**
+         * Creates a new raster.
+         *
+         * @param image the image, must not be modified anymore
+         * @param x the horizontal offset of the image in user space, relative to the origin of the bounds
+         * @param y the vertical offset of the image in user space, relative to the origin of the bounds
+         * @param scaleX the horizontal device scale, i.e. image pixels per user space unit
+         * @param scaleY the vertical device scale, i.e. image pixels per user space unit
+         */
+        Raster(final BufferedImage image, final int x, final int y, final double scaleX, final double scaleY) {
+            m_image = image;
+            m_x = x;
+            m_y = y;
+            m_scaleX = scaleX;
+            m_scaleY = scaleY;
+        }
+
+        BufferedImage getImage() {
+            return m_image;
+        }
+
+        int getX() {
+            return m_x;
+        }
+
+        int getY() {
+            return m_y;
+        }
+
+        double getScaleX() {
+            return m_scaleX;
+        }
+
+        double getScaleY() {
+            return m_scaleY;
+        }
+
+        long getBytes() {
+            return 4L * m_image.getWidth() * m_image.getHeight();
+        }
+    }
+
+    /**
+     * Returns the cached raster for the passed document, size and device scale.
+     *
+     * @param doc the snapshot of an SVG cell
+     * @param size the size of the bounds in which the document is painted
+     * @param keepAspectRatio whether the aspect ratio is kept
+     * @param scaleX the horizontal device scale
+     * @param scaleY the vertical device scale
+     * @return the raster or <code>null</code> if it is not in the cache
+     */
+    static Raster get(final SVGDocument doc, final Dimension size, final boolean keepAspectRatio,
+        final double scaleX, final double scaleY) {
+        synchronized (CACHE) {
+            return CACHE.get(new Key(doc, size, keepAspectRatio, scaleX, scaleY, null));
+        }
+    }
+
+    /**
+     * Puts a raster into the cache. Least recently used rasters are evicted if the cache becomes too large.
+     *
+     * @param doc the snapshot of an SVG cell
+     * @param size the size of the bounds in which the document is painted
+     * @param keepAspectRatio whether the aspect ratio is kept
+     * @param raster the rendered raster, the device scale is taken from the raster
+     */
+    static void put(final SVGDocument doc, final Dimension size, final boolean keepAspectRatio, final Raster raster) {
+        if (raster.getBytes() > MAX_BYTES) {
+            return;
+        }
+        synchronized (CACHE) {
+            expungeStaleEntries();
+            Key key = new Key(doc, size, keepAspectRatio, raster.getScaleX(), raster.getScaleY(), QUEUE);
+            Raster old = CACHE.put(key, raster);
+            if (old != null) {
+                totalBytes -= old.getBytes();
+            }
+            totalBytes += raster.getBytes();
+
+            for (Iterator<Raster> it = CACHE.values().iterator(); (totalBytes > MAX_BYTES) && it.hasNext();) {
+                totalBytes -= it.next().getBytes();
+                it.remove();
+            }
+        }
+    }
+
+    private static void expungeStaleEntries() {
+        for (Reference<? extends SVGDocument> ref; (ref = QUEUE.poll()) != null;) {
+            Raster old = CACHE.remove(ref);
+            if (old != null) {
+                totalBytes -= old.getBytes();
+            }
+        }
+    }
+
+    /**
+     * Weak key that compares documents by identity.
+     */
+    private static final class Key extends WeakReference<SVGDocument> {
+        private final int m_width;
+
+        private final int m_height;
+
+        private final boolean m_keepAspectRatio;
+
+        private final double m_scaleX;
+
+        private final double m_scaleY;
+
+        private final int m_hash;
+
+        Key(final SVGDocument doc, final Dimension size, final boolean keepAspectRatio, final double scaleX,
+            final double scaleY, final ReferenceQueue<SVGDocument> queue) {
+            super(doc, queue);
+            m_width = size.width;
+            m_height = size.height;
+            m_keepAspectRatio = keepAspectRatio;
+            m_scaleX = scaleX;
+            m_scaleY = scaleY;
+            int hash = 31 * (31 * (31 * System.identityHashCode(doc) + m_width) + m_height)
+                + Boolean.hashCode(keepAspectRatio);
+            m_hash = 31 * (31 * hash + Double.hashCode(scaleX)) + Double.hashCode(scaleY);
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            SVGDocument doc = get();
+            return (doc != null) && (doc == other.get()) && (m_keepAspectRatio == other.m_keepAspectRatio)
+                && (m_scaleX == other.m_scaleX) && (m_scaleY == other.m_scaleY) && (m_width == other.m_width)
+                && (m_height == other.m_height);
+        }
+    }
+}
@@ -50,12 +50,8 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-import java.lang.ref.SoftReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
-import org.apache.batik.transcoder.TranscoderException;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellDataInput;
 import org.knime.core.data.DataCellDataOutput;
@@ -66,7 +62,6 @@
 import org.knime.core.data.container.BlobDataCell;
 import org.knime.core.data.image.ImageContent;
 import org.knime.core.data.util.LockedSupplier;
-import org.knime.core.data.xml.util.XmlDomComparer;
 import org.w3c.dom.svg.SVGDocument;
 
 /**
@@ -89,7 +84,7 @@ public static final class SvgSerializer implements DataCellSerializer<SvgBlobCel
         public void serialize(final SvgBlobCell cell,
                 final DataCellDataOutput output) throws IOException {
             try {
-                output.writeUTF(cell.getStringValue());
+                cell.m_content.write(output);
             } catch (IOException ex) {
                 throw ex;
             } catch (Exception ex) {
@@ -103,18 +98,11 @@ public void serialize(final SvgBlobCell cell,
         @Override
         public SvgBlobCell deserialize(final DataCellDataInput input)
                 throws IOException {
-            String s = input.readUTF();
-            return new SvgBlobCell(s);
+            return new SvgBlobCell(SvgCellContent.read(input));
         }
     }
 
-    private SoftReference<String> m_xmlString;
-
-    private final ReentrantLock m_lock = new ReentrantLock();
-
-    private final SvgImageContent m_content;
-
-    private boolean m_isNormalized;
+    private final SvgCellContent m_content;
 
     /**
      * Returns the serializer for SVG cells.
@@ -141,12 +129,7 @@ public static DataCellSerializer<SvgBlobCell> getCellSerializer() {
      */
     @Deprecated
     public SvgBlobCell(final String xmlString) throws IOException {
-        m_xmlString = new SoftReference<String>(xmlString);
-        SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
-
-        m_content =
-                new SvgImageContent(f.createSVGDocument(null, new StringReader(
-                        xmlString)), false);
+        m_content = new SvgCellContent(xmlString, SvgCellContent.parse(xmlString));
     }
 
     /**
@@ -161,20 +144,29 @@ public SvgBlobCell(final String xmlString) throws IOException {
      */
     @Deprecated
     public SvgBlobCell(final SVGDocument doc) {
-        m_content = new SvgImageContent(doc, true);
+        m_content = new SvgCellContent(doc, true);
     }
 
 
     SvgBlobCell(final InputStream is) throws IOException {
         SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
-        m_content = new SvgImageContent(f.createSVGDocument(null, is), false);
+        m_content = new SvgCellContent(f.createSVGDocument(null, is), false);
     }
 
 
     SvgBlobCell(final Reader reader) throws IOException {
         SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
 
-        m_content = new SvgImageContent(f.createSVGDocument(null, reader), false);
+        m_content = new SvgCellContent(f.createSVGDocument(null, reader), false);
+    }
+
+    /**
+     * Creates a new SVGCell from existing content, e.g. when a cell is deserialized.
+     *
+     * @param content the cell's content
+     */
+    SvgBlobCell(final SvgCellContent content) {
+        m_content = content;
     }
 
     /**
@@ -183,7 +175,16 @@ public SvgBlobCell(final SVGDocument doc) {
     @Override
     @Deprecated
     public SVGDocument getDocument() {
-        return m_content.getSvgDocument();
+        return m_content.getImageContent().getSvgDocument();
+    }
+
+    /**
+     * Returns the cell's content.
+     *
+     * @return the content
+     */
+    SvgCellContent getContent() {
+        return m_content;
     }
 
     /**
@@ -199,12 +200,7 @@ public String toString() {
      */
     @Override
     protected boolean equalsDataCell(final DataCell dc) {
-        SvgBlobCell cell = (SvgBlobCell)dc;
-
-        try (LockedSupplier<SVGDocument> thisSupplier = getDocumentSupplier();
-             LockedSupplier<SVGDocument> cellSupplier = cell.getDocumentSupplier()) {
-            return XmlDomComparer.equals(thisSupplier.get(), cellSupplier.get(), SvgCell.SVG_XML_CUSTOMIZER);
-       }
+        return m_content.contentEquals(((SvgBlobCell)dc).m_content);
     }
 
     /**
@@ -220,9 +216,7 @@ protected boolean equalContent(final DataValue otherValue) {
      */
     @Override
     public int hashCode() {
-        try (LockedSupplier<SVGDocument> supplier = getDocumentSupplier()) {
-            return XmlDomComparer.hashCode(supplier.get(), SvgCell.SVG_XML_CUSTOMIZER);
-        }
+        return m_content.contentHashCode();
     }
 
     /**
@@ -230,20 +224,7 @@ public int hashCode() {
      */
     @Override
     public String getStringValue() {
-        if ((m_xmlString == null) || (m_xmlString.get() == null)) {
-            try {
-                m_xmlString =
-                        new SoftReference<String>(
-                                SvgImageContent.serialize(m_content
-                                        .getSvgDocument()));
-                m_isNormalized = true;
-            } catch (TranscoderException ex) {
-                throw new RuntimeException(
-                        "Cannot create string representation of XML document",
-                        ex);
-            }
-        }
-        return m_xmlString.get();
+        return m_content.getStringValue();
     }
 
     /**
@@ -251,7 +232,7 @@ public String getStringValue() {
      */
     @Override
     public ImageContent getImageContent() {
-        return m_content;
+        return m_content.getImageContent();
     }
 
     /**
@@ -270,6 +251,16 @@ public String getImageExtension() {
      */
     @Override
     public LockedSupplier<SVGDocument> getDocumentSupplier() {
-        return new LockedSupplier<SVGDocument>(m_content.getSvgDocument(), m_lock);
+        return m_content.getDocumentSupplier();
+    }
+
+    /**
+     * {@inheritDoc} The copy is cloned from a read-only document that is parsed from the serialized XML of
+     * this cell only once.
+     * @since 5.11
+     */
+    @Override
+    public SVGDocument getDocumentCopy() {
+        return m_content.getDocumentCopy();
     }
 }
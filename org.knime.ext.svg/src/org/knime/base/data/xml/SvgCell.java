@@ -50,14 +50,10 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
-import org.apache.batik.transcoder.TranscoderException;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellDataInput;
 import org.knime.core.data.DataCellDataOutput;
@@ -68,7 +64,6 @@
 import org.knime.core.data.StringValue;
 import org.knime.core.data.image.ImageContent;
 import org.knime.core.data.util.LockedSupplier;
-import org.knime.core.data.xml.util.XmlDomComparer;
 import org.knime.core.data.xml.util.XmlDomComparerCustomizer;
 import org.knime.core.data.xml.util.XmlDomComparerCustomizer.ChildrenCompareStrategy;
 import org.w3c.dom.Element;
@@ -97,7 +92,7 @@ public static final class SvgSerializer implements DataCellSerializer<SvgCell> {
         @Override
         public void serialize(final SvgCell cell, final DataCellDataOutput output) throws IOException {
             try {
-                output.writeUTF(cell.getStringValue());
+                cell.m_content.write(output);
             } catch (IOException ex) {
                 throw ex;
             } catch (Exception ex) {
@@ -110,8 +105,7 @@ public void serialize(final SvgCell cell, final DataCellDataOutput output) throw
          */
         @Override
         public SvgCell deserialize(final DataCellDataInput input) throws IOException {
-            String s = input.readUTF();
-            return new SvgCell(s);
+            return new SvgCell(SvgCellContent.read(input));
         }
     }
 
@@ -140,11 +134,7 @@ public boolean include(final Node node) {
         }
     };
 
-    private SoftReference<String> m_xmlString;
-
-    private final ReentrantLock m_lock = new ReentrantLock();
-
-    private final SvgImageContent m_content;
+    private final SvgCellContent m_content;
 
     /**
      * Returns the serializer for SVG cells.
@@ -170,24 +160,30 @@ public static DataCellSerializer<SvgCell> getCellSerializer() {
      */
     @Deprecated
     public SvgCell(final String xmlString) throws IOException {
-        m_xmlString = new SoftReference<String>(xmlString);
-        SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
-
-        m_content = new SvgImageContent(f.createSVGDocument(null, new StringReader(xmlString)), false);
+        m_content = new SvgCellContent(xmlString, SvgCellContent.parse(xmlString));
     }
 
 
     SvgCell(final InputStream is) throws IOException {
         SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
 
-        m_content = new SvgImageContent(f.createSVGDocument(null, is), false);
+        m_content = new SvgCellContent(f.createSVGDocument(null, is), false);
     }
 
 
     SvgCell(final Reader reader) throws IOException {
         SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
 
-        m_content = new SvgImageContent(f.createSVGDocument(null, reader), false);
+        m_content = new SvgCellContent(f.createSVGDocument(null, reader), false);
+    }
+
+    /**
+     * Creates a new SVGCell from existing content, e.g. when a cell is deserialized.
+     *
+     * @param content the cell's content
+     */
+    SvgCell(final SvgCellContent content) {
+        m_content = content;
     }
 
     /**
@@ -201,7 +197,7 @@ public SvgCell(final String xmlString) throws IOException {
      */
     @Deprecated
     public SvgCell(final SVGDocument doc) {
-        m_content = new SvgImageContent(doc, true);
+        m_content = new SvgCellContent(doc, true);
     }
 
     /**
@@ -211,7 +207,16 @@ public SvgCell(final SVGDocument doc) {
     @Deprecated
     @Override
     public SVGDocument getDocument() {
-        return m_content.getSvgDocument();
+        return m_content.getImageContent().getSvgDocument();
+    }
+
+    /**
+     * Returns the cell's content.
+     *
+     * @return the content
+     */
+    SvgCellContent getContent() {
+        return m_content;
     }
 
     /**
@@ -227,12 +232,7 @@ public String toString() {
      */
     @Override
     protected boolean equalsDataCell(final DataCell dc) {
-        SvgCell cell = (SvgCell)dc;
-
-        try (LockedSupplier<SVGDocument> thisSupplier = getDocumentSupplier();
-             LockedSupplier<SVGDocument> cellSupplier = cell.getDocumentSupplier()) {
-            return XmlDomComparer.equals(thisSupplier.get(), cellSupplier.get(), SVG_XML_CUSTOMIZER);
-        }
+        return m_content.contentEquals(((SvgCell)dc).m_content);
     }
 
     /**
@@ -248,9 +248,7 @@ protected boolean equalContent(final DataValue otherValue) {
      */
     @Override
     public int hashCode() {
-        try (LockedSupplier<SVGDocument> supplier = getDocumentSupplier()) {
-            return XmlDomComparer.hashCode(supplier.get(), SVG_XML_CUSTOMIZER);
-        }
+        return m_content.contentHashCode();
     }
 
     /**
@@ -258,16 +256,7 @@ public int hashCode() {
      */
     @Override
     public String getStringValue() {
-        String string = m_xmlString == null ? null : m_xmlString.get();
-        if (string == null) {
-            try {
-                string = SvgImageContent.serialize(m_content.getSvgDocument());
-                m_xmlString = new SoftReference<String>(string);
-            } catch (TranscoderException ex) {
-                throw new RuntimeException("Cannot create string representation of XML document", ex);
-            }
-        }
-        return string;
+        return m_content.getStringValue();
     }
 
     /**
@@ -275,7 +264,7 @@ public String getStringValue() {
      */
     @Override
     public ImageContent getImageContent() {
-        return m_content;
+        return m_content.getImageContent();
     }
 
     /**
@@ -292,6 +281,16 @@ public String getImageExtension() {
      */
     @Override
     public LockedSupplier<SVGDocument> getDocumentSupplier() {
-        return new LockedSupplier<SVGDocument>(m_content.getSvgDocument(), m_lock);
+        return m_content.getDocumentSupplier();
+    }
+
+    /**
+     * {@inheritDoc} The copy is cloned from a read-only document that is parsed from the serialized XML of
+     * this cell only once.
+     * @since 5.11
+     */
+    @Override
+    public SVGDocument getDocumentCopy() {
+        return m_content.getDocumentCopy();
     }
 }
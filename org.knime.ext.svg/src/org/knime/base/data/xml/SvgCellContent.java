@@ -0,0 +1,801 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.batik.constants.XMLConstants;
+import org.apache.batik.dom.util.DOMUtilities;
+import org.knime.core.data.util.LockedSupplier;
+import org.knime.core.data.xml.util.XmlDomComparer;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Content shared by {@link SvgCell} and {@link SvgBlobCell}. If the content is created from a serialized XML document
+ * (e.g. when a cell is read from disk) the UTF-8 encoded XML is kept and the SVG document is only parsed on first
+ * access. The parsed document is held by a {@link SoftReference} so that it can be reclaimed under memory pressure
+ * and rebuilt from the XML if it is needed again. Content that is created from an existing document keeps this
+ * document as the only source of truth.
+ *
+ * <p>
+ * The content is serialized in a versioned binary format:
+ * <pre>
+ * UTF string      magic string (distinguishes the format from the legacy string)
+ * byte            format version
+ * byte            flags
+ * int             structural hash code (only if the hash flag is set)
+ * int, int        preferred width and height of the image (only if the size flag is set)
+ * int             length of the UTF-8 encoded XML
+ * int             length of the deflated XML (only if the deflated flag is set)
+ * byte[]          the UTF-8 encoded XML, possibly deflated
+ * </pre>
+ * The legacy format, which was written with {@link DataOutput#writeUTF(String)}, can still be read. The magic string is
+ * written with the same method, so that the first string is always read with {@link DataInput#readUTF()}, which also
+ * supports the long strings that KNIME's cell streams write for documents over 64KB. Any string other than the magic
+ * string is a legacy document.
+ *
+ * <p>
+ * The hash code of the content is computed only once from the document structure and is persisted together with the
+ * XML, so that hashing deserialized cells does not require parsing the document. It takes only those parts of the
+ * document into account that are also compared by {@link XmlDomComparer} with the {@link SvgCell#SVG_XML_CUSTOMIZER}
+ * (element and attribute names, attribute values and the content of text elements), ignoring whitespace, so that
+ * equal documents always have equal hash codes.
+ *
+ * <p>
+ * The preferred size of the image is persisted as well, so that laying out deserialized cells does not require
+ * parsing the document and building its GVT tree. It is taken from the declared size of the document if possible and
+ * otherwise from the bounds of the image. The bounds are only persisted if they are already known, e.g. from
+ * validation, serialization never builds the GVT tree.
+ *
+ * <p>
+ * Content can also be created in a canonical form (see {@link SvgDomWriter}). Contents with equal canonical forms are
+ * equal without a structural comparison. Different canonical forms may still be equal, because the canonical form
+ * keeps text that is ignored by the comparison, e.g. in <code>title</code> elements.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SvgCellContent {
+    private static final String BINARY_FORMAT_MAGIC = "KNIME binary SVG";
+
+    private static final int BINARY_FORMAT_VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 0x01;
+
+    private static final int FLAG_HASH = 0x02;
+
+    private static final int FLAG_CANONICAL = 0x04;
+
+    private static final int FLAG_SIZE = 0x08;
+
+    /** The preferred size is taken from the bounds of the image, see {@link #m_boundsSize}. */
+    private static final int FLAG_BOUNDS_SIZE = 0x10;
+
+    private static final int KNOWN_FLAGS = FLAG_DEFLATED | FLAG_HASH | FLAG_CANONICAL | FLAG_SIZE | FLAG_BOUNDS_SIZE;
+
+    /**
+     * Minimum size of the UTF-8 encoded XML in bytes above which it is deflated during serialization, negative values
+     * disable compression.
+     */
+    private static final int COMPRESSION_THRESHOLD = Integer.getInteger("org.knime.svgcompressionthreshold", 16 * 1024);
+
+    private final ReentrantLock m_lock = new ReentrantLock();
+
+    /** The UTF-8 encoded XML source, <code>null</code> if the content was created from a document. */
+    private final byte[] m_xml;
+
+    /** The image content if the content was created from a document, <code>null</code> otherwise. */
+    private final SvgImageContent m_fixedContent;
+
+    private SoftReference<SvgImageContent> m_lazyContent;
+
+    private volatile SoftReference<byte[]> m_serializedXml;
+
+    private volatile SoftReference<String> m_xmlString;
+
+    /** Read-only document shared by all readers, see {@link #getSnapshot()}. */
+    private volatile SoftReference<SVGDocument> m_snapshot;
+
+    private int m_hash;
+
+    private volatile boolean m_hashValid;
+
+    /** Whether {@link #m_xml} is the canonical form of the document. */
+    private boolean m_canonical;
+
+    /** The preferred size of the image, <code>null</code> if it has not been determined yet. */
+    private volatile Dimension m_preferredSize;
+
+    /**
+     * Whether the preferred size is taken from the bounds of the image instead of the size declared by the document.
+     * This is the case for cells that have been written in the legacy format, so that their size does not change.
+     */
+    private boolean m_boundsSize;
+
+    /**
+     * Creates a new content from a UTF-8 encoded SVG document. The document is not parsed until it is accessed.
+     *
+     * @param xml an SVG document, must not be <code>null</code>
+     */
+    SvgCellContent(final byte[] xml) {
+        m_xml = xml;
+        m_fixedContent = null;
+    }
+
+    /**
+     * Creates a new content from a serialized SVG document. The document is not parsed until it is accessed.
+     *
+     * @param xml an SVG document, must not be <code>null</code>
+     */
+    SvgCellContent(final String xml) {
+        this(xml.getBytes(StandardCharsets.UTF_8));
+        m_xmlString = new SoftReference<>(xml);
+    }
+
+    /**
+     * Creates a new content from a serialized SVG document that has already been parsed. The document is kept as
+     * long as memory permits.
+     *
+     * @param xml an SVG document, must not be <code>null</code>
+     * @param doc the parsed document, must not be <code>null</code>
+     */
+    SvgCellContent(final String xml, final SVGDocument doc) {
+        this(xml, new SvgImageContent(doc, SvgImageContent.getIntrinsicSize(doc)));
+    }
+
+    /**
+     * Creates a new content from a serialized SVG document whose image content has already been created. The image
+     * content is kept as long as memory permits.
+     *
+     * @param xml an SVG document, must not be <code>null</code>
+     * @param content the image content of the parsed document, must not be <code>null</code>
+     */
+    SvgCellContent(final String xml, final SvgImageContent content) {
+        this(xml);
+        m_preferredSize = content.getKnownPreferredSize();
+        content.setSnapshotSupplier(this::getSnapshot);
+        m_lazyContent = new SoftReference<>(content);
+    }
+
+    /**
+     * Creates a new content using the passed SVG document.
+     *
+     * @param doc an SVG document, must not be <code>null</code>
+     * @param check <code>true</code> if the document should be checked for validity, <code>false</code> otherwise
+     */
+    SvgCellContent(final SVGDocument doc, final boolean check) {
+        m_xml = null;
+        m_fixedContent = new SvgImageContent(doc, check);
+        m_fixedContent.setSnapshotSupplier(this::getSnapshot);
+    }
+
+    /**
+     * Creates a new content holding the canonical form of the passed SVG document. The document itself is not kept,
+     * it is parsed again from the canonical form if it is accessed.
+     *
+     * @param doc an SVG document, must not be <code>null</code>
+     * @return a new content
+     * @throws IOException if the document cannot be serialized
+     */
+    static SvgCellContent canonical(final SVGDocument doc) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+        Writer writer = new OutputStreamWriter(bos, StandardCharsets.UTF_8);
+        SvgDomWriter.write(doc, writer, true);
+        writer.flush();
+
+        SvgCellContent content = new SvgCellContent(bos.toByteArray());
+        content.m_canonical = true;
+        content.m_preferredSize = SvgImageContent.getIntrinsicSize(doc);
+        // the canonical form only omits parts that are ignored by the structural hash
+        content.m_hash = structuralHashCode(doc);
+        content.m_hashValid = true;
+        return content;
+    }
+
+    /**
+     * Returns whether the content holds the canonical form of its document.
+     *
+     * @return <code>true</code> if the content is canonical, <code>false</code> otherwise
+     */
+    boolean isCanonical() {
+        return m_canonical;
+    }
+
+    /**
+     * Parses the passed string into an SVG document.
+     *
+     * @param xml an SVG document
+     * @return the parsed document
+     * @throws IOException if the string cannot be parsed
+     */
+    static SVGDocument parse(final String xml) throws IOException {
+        return SvgImageContent.newSAXSVGDocumentFactory().createSVGDocument(null, new StringReader(xml));
+    }
+
+    /**
+     * Parses the passed UTF-8 encoded XML into an SVG document. The encoding declared in the XML header is ignored.
+     *
+     * @param xml an UTF-8 encoded SVG document
+     * @return the parsed document
+     * @throws IOException if the XML cannot be parsed
+     */
+    static SVGDocument parse(final byte[] xml) throws IOException {
+        return SvgImageContent.newSAXSVGDocumentFactory().createSVGDocument(null,
+            new InputStreamReader(new ByteArrayInputStream(xml), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the image content, parsing the XML if the document has not been created yet or has been reclaimed in
+     * the meantime.
+     *
+     * @return the image content
+     */
+    synchronized SvgImageContent getImageContent() {
+        if (m_fixedContent != null) {
+            return m_fixedContent;
+        }
+        SvgImageContent content = m_lazyContent == null ? null : m_lazyContent.get();
+        if (content == null) {
+            try {
+                content = new SvgImageContent(parse(m_xml), m_preferredSize);
+                if (m_boundsSize) {
+                    content.useBoundsAsPreferredSize();
+                }
+                content.setSnapshotSupplier(this::getSnapshot);
+            } catch (IOException ex) {
+                throw new RuntimeException("Cannot parse SVG document", ex);
+            }
+            m_lazyContent = new SoftReference<>(content);
+        }
+        return content;
+    }
+
+    /**
+     * Returns the preferred size of the image. The document is only parsed if the size has neither been persisted nor
+     * been determined before.
+     *
+     * @return the preferred size
+     */
+    Dimension getPreferredSize() {
+        Dimension size = m_preferredSize;
+        if (size == null) {
+            size = getImageContent().getPreferredSize();
+            m_preferredSize = size;
+        }
+        return new Dimension(size);
+    }
+
+    /**
+     * Returns the preferred size if it is known or can be determined without parsing the document or building its
+     * GVT tree, i.e. if it has been determined before or is declared by an existing document.
+     */
+    private synchronized Dimension getAvailablePreferredSize() {
+        if (m_preferredSize == null) {
+            SvgImageContent content = (m_fixedContent != null) ? m_fixedContent
+                : ((m_lazyContent == null) ? null : m_lazyContent.get());
+            if (content != null) {
+                m_preferredSize = content.getKnownPreferredSize();
+            }
+        }
+        return m_preferredSize;
+    }
+
+    /**
+     * Returns a supplier for the SVG document that holds the content's lock while it is open.
+     *
+     * @return a locked supplier
+     */
+    LockedSupplier<SVGDocument> getDocumentSupplier() {
+        return new LockedSupplier<SVGDocument>(getImageContent().getSvgDocument(), m_lock);
+    }
+
+    /**
+     * Returns a read-only SVG document that is shared by all readers of the content, such as renderers and the
+     * structural comparison. It is parsed from the serialized XML once, or cloned from the document under its lock if
+     * the content was created from a document, and kept as long as memory permits. It is independent of the document
+     * of {@link #getDocumentSupplier()}, which legacy callers may modify while holding the lock, so that it can be read
+     * without the lock. The returned document must never be modified.
+     *
+     * @return the shared SVG document
+     */
+    SVGDocument getSnapshot() {
+        if (m_fixedContent == null) {
+            synchronized (this) {
+                SVGDocument doc = m_snapshot == null ? null : m_snapshot.get();
+                if (doc == null) {
+                    try {
+                        doc = parse(m_xml);
+                    } catch (IOException ex) {
+                        throw new RuntimeException("Cannot parse SVG document", ex);
+                    }
+                    m_snapshot = new SoftReference<>(doc);
+                }
+                return doc;
+            }
+        }
+
+        // the document lock is taken first and without holding the content's monitor, like legacy writers do
+        m_lock.lock();
+        try {
+            SVGDocument doc = m_snapshot == null ? null : m_snapshot.get();
+            if (doc == null) {
+                SVGDocument original = m_fixedContent.getSvgDocument();
+                doc = (SVGDocument)DOMUtilities.deepCloneDocument(original, original.getImplementation());
+                m_snapshot = new SoftReference<>(doc);
+            }
+            return doc;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a new copy of the SVG document that is owned by the caller. It is cloned from the shared
+     * {@linkplain #getSnapshot() snapshot}, so that the XML is only parsed once and no lock is held while cloning.
+     *
+     * @return a new SVG document
+     */
+    SVGDocument getDocumentCopy() {
+        SVGDocument snapshot = getSnapshot();
+        return (SVGDocument)DOMUtilities.deepCloneDocument(snapshot, snapshot.getImplementation());
+    }
+
+    /**
+     * Returns the UTF-8 encoded XML representation of the SVG document. The returned array must not be modified.
+     *
+     * @return the encoded XML
+     * @throws IOException if the document cannot be serialized
+     */
+    byte[] getXmlBytes() throws IOException {
+        if (m_xml != null) {
+            return m_xml;
+        }
+        m_lock.lock();
+        try {
+            byte[] xml = m_serializedXml == null ? null : m_serializedXml.get();
+            if (xml == null) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+                Writer writer = new OutputStreamWriter(bos, StandardCharsets.UTF_8);
+                SvgImageContent.serialize(m_fixedContent.getSvgDocument(), writer);
+                writer.flush();
+                xml = bos.toByteArray();
+                m_serializedXml = new SoftReference<>(xml);
+            }
+            return xml;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the UTF-8 encoded XML is smaller than the given number of bytes. A document is only serialized
+     * until the limit is reached; if it is smaller, the serialized form is kept for later use.
+     *
+     * @param maxBytes the limit in bytes
+     * @return <code>true</code> if the encoded XML is smaller than the limit, <code>false</code> otherwise
+     */
+    boolean isSmallerThan(final int maxBytes) {
+        byte[] xml = getAvailableXmlBytes();
+        if (xml != null) {
+            return xml.length < maxBytes;
+        }
+
+        ByteArrayOutputStream bos = new LimitedByteArrayOutputStream(maxBytes);
+        Writer writer = new OutputStreamWriter(bos, StandardCharsets.UTF_8);
+        m_lock.lock();
+        try {
+            SvgImageContent.serialize(m_fixedContent.getSvgDocument(), writer);
+            writer.flush();
+        } catch (LimitExceededException ex) { // NOSONAR expected for large documents
+            return false;
+        } catch (IOException ex) { // NOSONAR writing into memory does not fail, treat it as a large document
+            return false;
+        } finally {
+            m_lock.unlock();
+        }
+        m_serializedXml = new SoftReference<>(bos.toByteArray());
+        return true;
+    }
+
+    /**
+     * Returns the XML representation of the SVG document.
+     *
+     * @return an XML string
+     */
+    String getStringValue() {
+        String string = m_xmlString == null ? null : m_xmlString.get();
+        if (string == null) {
+            try {
+                string = new String(getXmlBytes(), StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                throw new RuntimeException("Cannot create string representation of XML document", ex);
+            }
+            m_xmlString = new SoftReference<String>(string);
+        }
+        return string;
+    }
+
+    /**
+     * Writes the content in the binary format to the given output.
+     *
+     * @param output the output
+     * @throws IOException if an I/O error occurs
+     */
+    void write(final DataOutput output) throws IOException {
+        byte[] xml = getXmlBytes();
+        byte[] deflated = null;
+        if ((COMPRESSION_THRESHOLD >= 0) && (xml.length >= COMPRESSION_THRESHOLD)) {
+            deflated = deflate(xml);
+            if (deflated.length >= xml.length) {
+                deflated = null;
+            }
+        }
+
+        output.writeUTF(BINARY_FORMAT_MAGIC);
+        output.writeByte(BINARY_FORMAT_VERSION);
+        // only persist the hash if it is available without parsing the document
+        boolean writeHash = m_hashValid || (m_fixedContent != null);
+        Dimension size = getAvailablePreferredSize();
+        output.writeByte((deflated != null ? FLAG_DEFLATED : 0) | (writeHash ? FLAG_HASH : 0)
+            | (m_canonical ? FLAG_CANONICAL : 0) | (size != null ? FLAG_SIZE : 0)
+            | (m_boundsSize ? FLAG_BOUNDS_SIZE : 0));
+        if (writeHash) {
+            output.writeInt(contentHashCode());
+        }
+        if (size != null) {
+            output.writeInt(size.width);
+            output.writeInt(size.height);
+        }
+        output.writeInt(xml.length);
+        if (deflated != null) {
+            output.writeInt(deflated.length);
+            output.write(deflated);
+        } else {
+            output.write(xml);
+        }
+    }
+
+    /**
+     * Reads content that has been written by {@link #write(DataOutput)} or with the legacy
+     * {@link DataOutput#writeUTF(String)}.
+     *
+     * @param input the input
+     * @return the content, not parsed yet
+     * @throws IOException if an I/O error occurs or the data is corrupt
+     */
+    static SvgCellContent read(final DataInput input) throws IOException {
+        String head = input.readUTF();
+        if (!BINARY_FORMAT_MAGIC.equals(head)) {
+            // legacy format, the string is the whole document; these cells keep the bounds as their preferred size
+            SvgCellContent content = new SvgCellContent(head);
+            content.m_boundsSize = true;
+            return content;
+        }
+
+        int version = input.readUnsignedByte();
+        if (version > BINARY_FORMAT_VERSION) {
+            throw new IOException("Unsupported SVG cell format version " + version
+                + ", the cell has probably been written by a newer version of KNIME");
+        }
+        int flags = input.readUnsignedByte();
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new IOException("Unsupported SVG cell format flags " + Integer.toHexString(flags));
+        }
+        int hash = 0;
+        if ((flags & FLAG_HASH) != 0) {
+            hash = input.readInt();
+        }
+        Dimension size = null;
+        if ((flags & FLAG_SIZE) != 0) {
+            size = new Dimension(input.readInt(), input.readInt());
+        }
+        byte[] xml = new byte[input.readInt()];
+        if ((flags & FLAG_DEFLATED) != 0) {
+            byte[] deflated = new byte[input.readInt()];
+            input.readFully(deflated);
+            inflate(deflated, xml);
+        } else {
+            input.readFully(xml);
+        }
+        SvgCellContent content = new SvgCellContent(xml);
+        content.m_canonical = (flags & FLAG_CANONICAL) != 0;
+        if ((flags & FLAG_HASH) != 0) {
+            content.m_hash = hash;
+            content.m_hashValid = true;
+        }
+        content.m_preferredSize = size;
+        content.m_boundsSize = (flags & FLAG_BOUNDS_SIZE) != 0;
+        return content;
+    }
+
+    private static byte[] deflate(final byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                bos.write(buffer, 0, length);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void inflate(final byte[] deflated, final byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            int offset = 0;
+            while (offset < data.length) {
+                int length = inflater.inflate(data, offset, data.length - offset);
+                if ((length == 0) && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Deflated SVG data is truncated");
+                }
+                offset += length;
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Deflated SVG data is corrupt", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the UTF-8 encoded XML if it is available without serializing the document.
+     *
+     * @return the encoded XML or <code>null</code>
+     */
+    private byte[] getAvailableXmlBytes() {
+        if (m_xml != null) {
+            return m_xml;
+        }
+        return m_serializedXml == null ? null : m_serializedXml.get();
+    }
+
+    /**
+     * Returns the content of the given value if it is one of the SVG cell implementations.
+     *
+     * @param value an SVG value
+     * @return the value's content or <code>null</code> if the value is not an {@link SvgCell} or {@link SvgBlobCell}
+     */
+    static SvgCellContent of(final SvgValue value) {
+        if (value instanceof SvgCell) {
+            return ((SvgCell)value).getContent();
+        } else if (value instanceof SvgBlobCell) {
+            return ((SvgBlobCell)value).getContent();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether this content and the passed content hold equal SVG documents. Different hash codes and equal
+     * serialized XML are used to decide early; the documents are only compared structurally if neither applies.
+     *
+     * @param other another content
+     * @return <code>true</code> if both documents are equal, <code>false</code> otherwise
+     */
+    boolean contentEquals(final SvgCellContent other) {
+        if (this == other) {
+            return true;
+        }
+        if (contentHashCode() != other.contentHashCode()) {
+            return false;
+        }
+        byte[] thisXml = getAvailableXmlBytes();
+        byte[] otherXml = other.getAvailableXmlBytes();
+        if ((thisXml != null) && (otherXml != null) && Arrays.equals(thisXml, otherXml)) {
+            return true;
+        }
+
+        // the snapshots are compared without holding both document locks, which could deadlock if two threads compare
+        // the same contents in opposite order
+        return XmlDomComparer.equals(getSnapshot(), other.getSnapshot(), SvgCell.SVG_XML_CUSTOMIZER);
+    }
+
+    /**
+     * Returns the structural hash code of the SVG document. It is computed on first access only.
+     *
+     * @return a hash code
+     */
+    int contentHashCode() {
+        if (!m_hashValid) {
+            if (m_fixedContent == null) {
+                m_hash = structuralHashCode(getSnapshot());
+            } else {
+                try (LockedSupplier<SVGDocument> supplier = getDocumentSupplier()) {
+                    m_hash = structuralHashCode(supplier.get());
+                }
+            }
+            m_hashValid = true;
+        }
+        return m_hash;
+    }
+
+    /**
+     * Computes a hash code of the given node that is consistent with {@link XmlDomComparer#equals(Node, Node,
+     * org.knime.core.data.xml.util.XmlDomComparerCustomizer)} using the {@link SvgCell#SVG_XML_CUSTOMIZER}. Namespace
+     * declarations, comments and other nodes that are not elements or text are ignored, as is whitespace in text and
+     * attribute values. Characters that cannot be serialized (outside the Basic Multilingual Plane) and their
+     * replacement character are ignored, too.
+     *
+     * @param node a document or element node
+     * @return a hash code
+     */
+    static int structuralHashCode(final Node node) {
+        int hash = 0;
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            hash = localName(node).hashCode();
+            NamedNodeMap attributes = node.getAttributes();
+            int attributeHash = 0;
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Node attr = attributes.item(i);
+                if (!isNamespaceDeclaration(attr) && SvgCell.SVG_XML_CUSTOMIZER.include(attr)) {
+                    // attribute order is not significant
+                    attributeHash += 31 * localName(attr).hashCode() + fold(0, attr.getNodeValue());
+                }
+            }
+            hash = 31 * hash + attributeHash;
+        }
+
+        long hashes = hashChildren(node, hash, 0);
+        return 31 * (int)(hashes >>> 32) + (int)hashes;
+    }
+
+    /**
+     * Folds the children of the given node into the element and text hash codes, which are returned packed into one
+     * long. Entity references are resolved, so that their content is hashed as if it were inlined.
+     */
+    private static long hashChildren(final Node parent, final int elementHash, final int textHash) {
+        int hash = elementHash;
+        int text = textHash;
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!SvgCell.SVG_XML_CUSTOMIZER.include(child)) {
+                continue;
+            }
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    hash = 31 * hash + structuralHashCode(child);
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    // adjacent text nodes are treated as one text
+                    text = fold(text, child.getNodeValue());
+                    break;
+                case Node.ENTITY_REFERENCE_NODE:
+                    long hashes = hashChildren(child, hash, text);
+                    hash = (int)(hashes >>> 32);
+                    text = (int)hashes;
+                    break;
+                default:
+            }
+        }
+        return ((long)hash << 32) | (text & 0xFFFFFFFFL);
+    }
+
+    private static boolean isNamespaceDeclaration(final Node attr) {
+        // documents created programmatically may contain declarations without the XMLNS namespace
+        String name = attr.getNodeName();
+        return XMLConstants.XMLNS_NAMESPACE_URI.equals(attr.getNamespaceURI())
+            || XMLConstants.XMLNS_PREFIX.equals(name) || name.startsWith(XMLConstants.XMLNS_PREFIX + ":");
+    }
+
+    private static String localName(final Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+
+    private static int fold(final int hash, final String s) {
+        int h = hash;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!Character.isWhitespace(c) && !Character.isSurrogate(c) && (c != 0xFFFD)) {
+                h = 31 * h + c;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Byte array stream that fails as soon as the written data reaches a limit.
+     */
+    private static final class LimitedByteArrayOutputStream extends ByteArrayOutputStream {
+        private final int m_limit;
+
+        LimitedByteArrayOutputStream(final int limit) {
+            super(Math.min(limit, 4096));
+            m_limit = limit;
+        }
+
+        @Override
+        public synchronized void write(final int b) {
+            checkLimit(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            checkLimit(len);
+            super.write(b, off, len);
+        }
+
+        private void checkLimit(final int len) {
+            if (count + len >= m_limit) {
+                throw new LimitExceededException();
+            }
+        }
+    }
+
+    /**
+     * Signals that a {@link LimitedByteArrayOutputStream} has reached its limit.
+     */
+    @SuppressWarnings("serial")
+    private static final class LimitExceededException extends UncheckedIOException {
+        LimitExceededException() {
+            super(new IOException("Size limit exceeded"));
+        }
+    }
+}
@@ -47,11 +47,22 @@
  */
 package org.knime.base.data.xml;
 
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackReader;
 import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Arrays;
 
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.util.SVGConstants;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellFactory.FromComplexString;
 import org.knime.core.data.DataCellFactory.FromInputStream;
@@ -60,6 +71,7 @@
 import org.knime.core.data.container.BlobDataCell;
 import org.knime.core.data.convert.DataCellFactoryMethod;
 import org.knime.core.node.NodeLogger;
+import org.w3c.dom.Element;
 import org.w3c.dom.svg.SVGDocument;
 
 /**
@@ -75,6 +87,9 @@ public final class SvgCellFactory implements FromComplexString, FromReader, From
      */
     public static final int DEF_MIN_BLOB_SIZE_IN_BYTES = 8 * 1024;
 
+    /** Initial size of the buffers for streamed input, they grow up to the blob threshold. */
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
     private static final int MIN_BLOB_SIZE_IN_BYTES;
 
     static {
@@ -112,11 +127,31 @@ public final class SvgCellFactory implements FromComplexString, FromReader, From
     /** Type for CML cells. */
     public static final DataType TYPE = DataType.getType(SvgCell.class);
 
+    /**
+     * Validation that is applied to SVG documents before cells are created from them.
+     *
+     * @since 5.11
+     */
+    public enum Validation {
+        /**
+         * The GVT tree of the document is built and must have valid bounds. The tree is kept for painting the image
+         * later.
+         */
+        FULL,
+        /**
+         * Only the root element of the document must be an SVG <code>svg</code> element. Suitable for documents that
+         * are generated and known to be valid, e.g. by {@link org.apache.batik.svggen.SVGGraphics2D}.
+         */
+        STRUCTURAL,
+        /** The document is not validated at all. */
+        NONE;
+    }
+
     /**
      * Factory method to create {@link DataCell} representing SVG documents.
      * The returned cell is either of type {@link SvgCell} (for small strings)
      * or {@link SvgBlobCell} (otherwise, default threshold is
-     * {@value #DEF_MIN_BLOB_SIZE_IN_BYTES} bytes or larger).
+     * {@value #DEF_MIN_BLOB_SIZE_IN_BYTES} bytes or larger in UTF-8 encoding).
      *
      * @param string String representing of the SVG document
      * @return DataCell representing the SVG document
@@ -128,30 +163,209 @@ public static DataCell create(final String string) throws IOException {
         if (string == null) {
             throw new NullPointerException("SVG must not be null");
         }
-        if (string.length() >= MIN_BLOB_SIZE_IN_BYTES) {
-            return new SvgBlobCell(string);
-        } else {
+        if (isSmallerThan(string, MIN_BLOB_SIZE_IN_BYTES)) {
             return new SvgCell(string);
+        } else {
+            return new SvgBlobCell(string);
+        }
+    }
+
+    /**
+     * Factory method to create {@link DataCell} representing SVG documents,
+     * see {@link #create(String)}. The document is validated as specified;
+     * without validation it is not even parsed until it is accessed.
+     *
+     * @param string String representing of the SVG document
+     * @param validation the validation that is applied to the document
+     * @return DataCell representing the SVG document
+     * @throws IOException if an error occurs while reading the XML string
+     * @throws IllegalArgumentException if the SVG document does not pass
+     *             the validation
+     * @throws NullPointerException if an argument is null
+     * @since 5.11
+     */
+    public static DataCell create(final String string, final Validation validation) throws IOException {
+        if (string == null) {
+            throw new NullPointerException("SVG must not be null");
+        }
+        switch (validation) {
+            case FULL:
+                return create(new SvgCellContent(string, new SvgImageContent(SvgCellContent.parse(string), true)));
+            case STRUCTURAL:
+                SVGDocument doc = SvgCellContent.parse(string);
+                checkStructure(doc);
+                return create(new SvgCellContent(string, doc));
+            case NONE:
+                return create(new SvgCellContent(string));
+            default:
+                throw new IllegalArgumentException("Unknown validation: " + validation);
         }
     }
 
     /**
      * Factory method to create {@link DataCell} representing SVG documents.
-     * The returned cell is either of type {@link SvgCell} (for small strings)
+     * The returned cell is either of type {@link SvgCell} (for small documents)
      * or {@link SvgBlobCell} (otherwise, default threshold is
-     * {@value #DEF_MIN_BLOB_SIZE_IN_BYTES} bytes or larger).
+     * {@value #DEF_MIN_BLOB_SIZE_IN_BYTES} bytes or larger). The document is
+     * serialized at most up to the threshold in order to determine its size.
      *
      * @param doc the SVG document
      * @return DataCell representing the SVG document
+     * @throws IllegalArgumentException if the SVG document is corrupt or does
+     *             not contain a proper SVG image
      * @throws NullPointerException if argument is null
      */
-    @SuppressWarnings("deprecation")
     public static DataCell create(final SVGDocument doc) {
+        return create(doc, Validation.FULL);
+    }
+
+    /**
+     * Factory method to create {@link DataCell} representing SVG documents,
+     * see {@link #create(SVGDocument)}. The document is validated as
+     * specified.
+     *
+     * @param doc the SVG document
+     * @param validation the validation that is applied to the document
+     * @return DataCell representing the SVG document
+     * @throws IllegalArgumentException if the SVG document does not pass
+     *             the validation
+     * @throws NullPointerException if an argument is null
+     * @since 5.11
+     */
+    public static DataCell create(final SVGDocument doc, final Validation validation) {
+        if (doc == null) {
+            throw new NullPointerException("SVG must not be null");
+        }
+        switch (validation) {
+            case FULL:
+                return create(new SvgCellContent(doc, true));
+            case STRUCTURAL:
+                checkStructure(doc);
+                return create(new SvgCellContent(doc, false));
+            case NONE:
+                return create(new SvgCellContent(doc, false));
+            default:
+                throw new IllegalArgumentException("Unknown validation: " + validation);
+        }
+    }
+
+    private static void checkStructure(final SVGDocument doc) {
+        Element root = doc.getDocumentElement();
+        if ((root == null) || !SVGConstants.SVG_NAMESPACE_URI.equals(root.getNamespaceURI())
+            || !SVGConstants.SVG_SVG_TAG.equals(root.getLocalName())) {
+            throw new IllegalArgumentException(
+                "SVG document seems to be corrupt or does not contain a proper SVG image");
+        }
+    }
+
+    /**
+     * Factory method to create {@link DataCell} representing SVG documents in a canonical form. Comments, metadata
+     * elements, the document type and whitespace outside of text content are removed, attributes are sorted and only
+     * required namespace declarations are kept. The canonical form is computed only once; cells holding it are
+     * usually smaller and can be compared without parsing their documents. The returned cell is either of type
+     * {@link SvgCell} (for small documents) or {@link SvgBlobCell} (otherwise, default threshold is
+     * {@value #DEF_MIN_BLOB_SIZE_IN_BYTES} bytes or larger).
+     *
+     * @param doc the SVG document
+     * @return DataCell representing the SVG document
+     * @throws IOException if the document cannot be serialized
+     * @throws NullPointerException if argument is null
+     * @since 5.11
+     */
+    public static DataCell createCanonical(final SVGDocument doc) throws IOException {
         if (doc == null) {
             throw new NullPointerException("SVG must not be null");
         }
-        // TODO add a reasonable size check
-        return new SvgBlobCell(doc);
+        // validate the document the same way as the cell constructors do
+        new SvgImageContent(doc, true);
+        return create(SvgCellContent.canonical(doc));
+    }
+
+    /**
+     * Factory method to create {@link DataCell} representing SVG documents in a canonical form, see
+     * {@link #createCanonical(SVGDocument)}.
+     *
+     * @param string String representing of the SVG document
+     * @return DataCell representing the SVG document
+     * @throws IOException if an error occurs while reading the XML string
+     * @throws NullPointerException if argument is null
+     * @since 5.11
+     */
+    public static DataCell createCanonical(final String string) throws IOException {
+        if (string == null) {
+            throw new NullPointerException("SVG must not be null");
+        }
+        return create(SvgCellContent.canonical(SvgCellContent.parse(string)));
+    }
+
+    /**
+     * Returns the preferred size of the value's image. For SVG cells the size is usually known without parsing the
+     * document, e.g. because it has been persisted with the cell.
+     *
+     * @param value an SVG value
+     * @return the preferred size of the image
+     * @throws NullPointerException if argument is null
+     * @since 5.11
+     */
+    public static Dimension getPreferredSize(final SvgValue value) {
+        SvgCellContent content = SvgCellContent.of(value);
+        if (content != null) {
+            return content.getPreferredSize();
+        }
+        return value.getImageContent().getPreferredSize();
+    }
+
+    /**
+     * Returns the size of the value's UTF-8 encoded XML without creating its string representation. SVG cells that
+     * have been created from a document serialize it if this has not happened yet; the result is kept as long as
+     * memory permits.
+     *
+     * @param value an SVG value
+     * @return the size in bytes or <code>-1</code> if the value is not an {@link SvgCell} or {@link SvgBlobCell} or
+     *         the document cannot be serialized
+     * @throws NullPointerException if argument is null
+     * @since 5.11
+     */
+    public static long getXmlSize(final SvgValue value) {
+        SvgCellContent content = SvgCellContent.of(value);
+        if (content == null) {
+            return -1;
+        }
+        try {
+            return content.getXmlBytes().length;
+        } catch (IOException ex) { // NOSONAR the caller falls back to its own estimate
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the UTF-8 encoded XML of the value to the given stream. The written bytes only depend on the document,
+     * unlike the serialized form of SVG cells, which also contains data that is only available once it has been
+     * computed, such as the hash code and the preferred size.
+     *
+     * @param value an SVG value
+     * @param out the stream, it is not closed
+     * @throws IOException if an I/O error occurs or the document cannot be serialized
+     * @throws NullPointerException if an argument is null
+     * @since 5.11
+     */
+    public static void writeXml(final SvgValue value, final OutputStream out) throws IOException {
+        SvgCellContent content = SvgCellContent.of(value);
+        if (content != null) {
+            out.write(content.getXmlBytes());
+        } else {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            SvgImageContent.serialize(value.getImageContent().getSvgDocument(), writer);
+            writer.flush();
+        }
+    }
+
+    private static DataCell create(final SvgCellContent content) {
+        if (content.isSmallerThan(MIN_BLOB_SIZE_IN_BYTES)) {
+            return new SvgCell(content);
+        } else {
+            return new SvgBlobCell(content);
+        }
     }
 
     /**
@@ -178,22 +392,87 @@ public DataType getDataType() {
     }
 
     /**
-     * {@inheritDoc}
+     * Returns whether the UTF-8 encoding of the string is smaller than the given number of bytes.
+     */
+    private static boolean isSmallerThan(final String string, final int maxBytes) {
+        final int length = string.length();
+        if (length >= maxBytes) {
+            return false; // every character needs at least one byte
+        }
+        int bytes = 0;
+        for (int i = 0; (i < length) && (bytes < maxBytes); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && (i + 1 < length)
+                && Character.isLowSurrogate(string.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes < maxBytes;
+    }
+
+    /**
+     * {@inheritDoc} The input is buffered up to the blob threshold; only larger inputs are streamed into a
+     * {@link SvgBlobCell}.
      * @since 3.0
      */
     @Override
     @DataCellFactoryMethod(name = "InputStream (SVG)")
     public DataCell createCell(final InputStream input) throws IOException {
-        return new SvgBlobCell(input);
+        // the buffer grows with the input, so that small documents don't allocate the whole threshold
+        byte[] buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, MIN_BLOB_SIZE_IN_BYTES)];
+        int length = 0;
+        while (true) {
+            length += input.readNBytes(buffer, length, buffer.length - length);
+            if ((length < buffer.length) || (buffer.length == MIN_BLOB_SIZE_IN_BYTES)) {
+                break;
+            }
+            buffer = Arrays.copyOf(buffer, (int)Math.min(2L * buffer.length, MIN_BLOB_SIZE_IN_BYTES));
+        }
+        if (length < MIN_BLOB_SIZE_IN_BYTES) {
+            // the parser takes care of the encoding, the cell type is decided by the serialized size
+            SAXSVGDocumentFactory f = SvgImageContent.newSAXSVGDocumentFactory();
+            SVGDocument doc = f.createSVGDocument(null, new ByteArrayInputStream(buffer, 0, length));
+            return create(new SvgCellContent(doc, false));
+        }
+        return new SvgBlobCell(new SequenceInputStream(new ByteArrayInputStream(buffer), input));
     }
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc} The input is buffered up to the blob threshold; only larger inputs are streamed into a
+     * {@link SvgBlobCell}.
      * @since 3.0
      */
     @Override
     @DataCellFactoryMethod(name = "Reader (SVG)")
     public DataCell createCell(final Reader input) throws ParseException, IOException {
-        return new SvgBlobCell(input);
+        char[] buffer = new char[Math.min(INITIAL_BUFFER_SIZE, MIN_BLOB_SIZE_IN_BYTES)];
+        int length = 0;
+        int read = 0;
+        while (read >= 0) {
+            if (length == buffer.length) {
+                if (buffer.length == MIN_BLOB_SIZE_IN_BYTES) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, (int)Math.min(2L * buffer.length, MIN_BLOB_SIZE_IN_BYTES));
+            }
+            read = input.read(buffer, length, buffer.length - length);
+            if (read > 0) {
+                length += read;
+            }
+        }
+        if (length < MIN_BLOB_SIZE_IN_BYTES) {
+            return create(new String(buffer, 0, length));
+        }
+        // every character needs at least one byte, hence the document does not fit into a normal cell
+        PushbackReader reader = new PushbackReader(input, Math.max(1, length));
+        reader.unread(buffer, 0, length);
+        return new SvgBlobCell(reader);
     }
 }
@@ -0,0 +1,430 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.data.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.constants.XMLConstants;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Streaming writer for SVG documents. It writes the DOM directly into a {@link Writer}, adding namespace declarations
+ * where they are missing (e.g. in documents that have been created programmatically). The writer keeps no state
+ * between documents and does not modify the document.
+ *
+ * <p>
+ * Unicode characters outside the Basic Multilingual Plane are replaced by U+FFFD REPLACEMENT CHARACTER while writing,
+ * because they cannot be handled by Batik's transcoders (see AP-18895 and
+ * https://issues.apache.org/jira/browse/BATIK-1328). The same applies to characters that are not allowed in XML.
+ *
+ * <p>
+ * In canonical mode comments, the document type, elements and whitespace-only text ignored by the
+ * {@link SvgCell#SVG_XML_CUSTOMIZER} are omitted and attributes are written in lexicographical order. Namespace
+ * declarations are only written where they are needed, SVG elements always use the default namespace. Documents that
+ * only differ in these aspects therefore have the same canonical form.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SvgDomWriter {
+    /** A single-char string containing U+FFFD REPLACEMENT CHARACTER. */
+    private static final String REPLACEMENT_STRING = String.valueOf((char)0xFFFD);
+
+    /** Context in which characters are written, determines what needs to be escaped. */
+    private enum Context {
+        /** Text content. */
+        TEXT,
+        /** Attribute values. */
+        ATTRIBUTE,
+        /** Unescaped content such as CDATA sections or comments. */
+        RAW
+    }
+
+    private final Writer m_out;
+
+    private final boolean m_canonical;
+
+    /** Namespace bindings (prefix to URI) of the enclosing elements, the innermost scope comes first. */
+    private final Deque<Map<String, String>> m_scopes = new ArrayDeque<>();
+
+    private SvgDomWriter(final Writer out, final boolean canonical) {
+        m_out = out;
+        m_canonical = canonical;
+        Map<String, String> predefined = new HashMap<>();
+        predefined.put("", "");
+        predefined.put(XMLConstants.XML_PREFIX, XMLConstants.XML_NAMESPACE_URI);
+        m_scopes.push(predefined);
+    }
+
+    /**
+     * Writes the given document including an XML declaration.
+     *
+     * @param doc an SVG document
+     * @param out the writer, which is not closed
+     * @param canonical <code>true</code> if the canonical form should be written, <code>false</code> otherwise
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(final Document doc, final Writer out, final boolean canonical) throws IOException {
+        SvgDomWriter writer = new SvgDomWriter(out, canonical);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+        for (Node child = doc.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (writer.writeNode(child)) {
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes a single node.
+     *
+     * @return <code>true</code> if something has been written, <code>false</code> if the node has been skipped
+     */
+    private boolean writeNode(final Node node) throws IOException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                if (m_canonical && !SvgCell.SVG_XML_CUSTOMIZER.include(node)) {
+                    return false;
+                }
+                writeElement((Element)node);
+                return true;
+            case Node.TEXT_NODE:
+                if (m_canonical && !SvgCell.SVG_XML_CUSTOMIZER.include(node) && isWhitespace(node.getNodeValue())) {
+                    return false;
+                }
+                writeEscaped(node.getNodeValue(), Context.TEXT);
+                return true;
+            case Node.CDATA_SECTION_NODE:
+                m_out.write("<![CDATA[");
+                writeEscaped(node.getNodeValue().replace("]]>", "]]]]><![CDATA[>"), Context.RAW);
+                m_out.write("]]>");
+                return true;
+            case Node.COMMENT_NODE:
+                if (m_canonical) {
+                    return false;
+                }
+                m_out.write("<!--");
+                String comment = node.getNodeValue().replace("--", "- -");
+                writeEscaped(comment.endsWith("-") ? (comment + " ") : comment, Context.RAW);
+                m_out.write("-->");
+                return true;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                m_out.write("<?");
+                m_out.write(node.getNodeName());
+                if (!node.getNodeValue().isEmpty()) {
+                    m_out.write(' ');
+                    writeEscaped(node.getNodeValue(), Context.RAW);
+                }
+                m_out.write("?>");
+                return true;
+            case Node.ENTITY_REFERENCE_NODE:
+                boolean written = false;
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    written |= writeNode(child);
+                }
+                return written;
+            case Node.DOCUMENT_TYPE_NODE:
+                if (m_canonical) {
+                    return false;
+                }
+                writeDocumentType((DocumentType)node);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void writeDocumentType(final DocumentType docType) throws IOException {
+        m_out.write("<!DOCTYPE ");
+        m_out.write(docType.getName());
+        if (docType.getPublicId() != null) {
+            m_out.write(" PUBLIC \"");
+            m_out.write(docType.getPublicId());
+            m_out.write("\" \"");
+            m_out.write(docType.getSystemId() == null ? "" : docType.getSystemId());
+            m_out.write('"');
+        } else if (docType.getSystemId() != null) {
+            m_out.write(" SYSTEM \"");
+            m_out.write(docType.getSystemId());
+            m_out.write('"');
+        }
+        if ((docType.getInternalSubset() != null) && !docType.getInternalSubset().isEmpty()) {
+            m_out.write(" [");
+            writeEscaped(docType.getInternalSubset(), Context.RAW);
+            m_out.write(']');
+        }
+        m_out.write('>');
+    }
+
+    private void writeElement(final Element element) throws IOException {
+        Map<String, String> declarations = m_canonical ? new TreeMap<>() : new LinkedHashMap<>();
+        NamedNodeMap attributeMap = element.getAttributes();
+        List<Attr> attributes = new ArrayList<>(attributeMap.getLength());
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            Attr attr = (Attr)attributeMap.item(i);
+            String name = attr.getNodeName();
+            // in canonical mode all required declarations are added below
+            if (XMLConstants.XMLNS_PREFIX.equals(name)) {
+                if (!m_canonical) {
+                    declarations.put("", attr.getNodeValue());
+                }
+            } else if (name.startsWith(XMLConstants.XMLNS_PREFIX + ":")) {
+                if (!m_canonical) {
+                    declarations.put(name.substring(XMLConstants.XMLNS_PREFIX.length() + 1), attr.getNodeValue());
+                }
+            } else {
+                attributes.add(attr);
+            }
+        }
+
+        String qualifiedName;
+        if (element.getLocalName() == null) {
+            // DOM level 1 element without namespace information
+            qualifiedName = element.getNodeName();
+        } else {
+            String uri = nullToEmpty(element.getNamespaceURI());
+            String prefix = nullToEmpty(element.getPrefix());
+            if (m_canonical && SVGDOMImplementation.SVG_NAMESPACE_URI.equals(uri)) {
+                prefix = "";
+            }
+            if (!uri.equals(lookup(prefix, declarations))) {
+                declarations.put(prefix, uri);
+            }
+            qualifiedName = prefix.isEmpty() ? element.getLocalName() : (prefix + ":" + element.getLocalName());
+        }
+
+        List<Entry<String, String>> namedAttributes = new ArrayList<>(attributes.size());
+        for (Attr attr : attributes) {
+            namedAttributes.add(new SimpleEntry<>(attributeName(attr, declarations), attr.getNodeValue()));
+        }
+        if (m_canonical) {
+            Collections.sort(namedAttributes, Entry.comparingByKey());
+        }
+
+        m_out.write('<');
+        m_out.write(qualifiedName);
+        for (Entry<String, String> e : declarations.entrySet()) {
+            m_out.write(e.getKey().isEmpty() ? " xmlns=\"" : (" xmlns:" + e.getKey() + "=\""));
+            writeEscaped(e.getValue(), Context.ATTRIBUTE);
+            m_out.write('"');
+        }
+        for (Entry<String, String> e : namedAttributes) {
+            m_out.write(' ');
+            m_out.write(e.getKey());
+            m_out.write("=\"");
+            writeEscaped(e.getValue(), Context.ATTRIBUTE);
+            m_out.write('"');
+        }
+
+        if (!element.hasChildNodes()) {
+            m_out.write("/>");
+            return;
+        }
+        m_out.write('>');
+        m_scopes.push(declarations);
+        try {
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                writeNode(child);
+            }
+        } finally {
+            m_scopes.pop();
+        }
+        m_out.write("</");
+        m_out.write(qualifiedName);
+        m_out.write('>');
+    }
+
+    /**
+     * Returns the qualified name under which the attribute is written, declaring its namespace if necessary.
+     */
+    private String attributeName(final Attr attr, final Map<String, String> declarations) {
+        String uri = attr.getNamespaceURI();
+        if ((attr.getLocalName() == null) || (uri == null) || uri.isEmpty()) {
+            return attr.getNodeName();
+        }
+        if (XMLConstants.XML_NAMESPACE_URI.equals(uri)) {
+            return XMLConstants.XML_PREFIX + ":" + attr.getLocalName();
+        }
+
+        String prefix = nullToEmpty(attr.getPrefix());
+        if (m_canonical && XMLConstants.XLINK_NAMESPACE_URI.equals(uri)) {
+            prefix = XMLConstants.XLINK_PREFIX;
+        }
+        if (prefix.isEmpty() || !uri.equals(lookup(prefix, declarations))) {
+            // attributes in a namespace need a prefix; use an already bound one if possible
+            String boundPrefix = findPrefix(uri, declarations);
+            if (boundPrefix != null) {
+                prefix = boundPrefix;
+            } else {
+                if (prefix.isEmpty() || (lookup(prefix, declarations) != null)) {
+                    prefix = XMLConstants.XLINK_NAMESPACE_URI.equals(uri) ? XMLConstants.XLINK_PREFIX : "ns";
+                    String candidate = prefix;
+                    for (int i = 1; lookup(candidate, declarations) != null; i++) {
+                        candidate = prefix + i;
+                    }
+                    prefix = candidate;
+                }
+                declarations.put(prefix, uri);
+            }
+        }
+        return prefix + ":" + attr.getLocalName();
+    }
+
+    private String lookup(final String prefix, final Map<String, String> declarations) {
+        String uri = declarations.get(prefix);
+        if (uri != null) {
+            return uri;
+        }
+        for (Map<String, String> scope : m_scopes) {
+            uri = scope.get(prefix);
+            if (uri != null) {
+                return uri;
+            }
+        }
+        return null;
+    }
+
+    private String findPrefix(final String uri, final Map<String, String> declarations) {
+        for (Entry<String, String> e : declarations.entrySet()) {
+            if (!e.getKey().isEmpty() && uri.equals(e.getValue())) {
+                return e.getKey();
+            }
+        }
+        for (Map<String, String> scope : m_scopes) {
+            for (Entry<String, String> e : scope.entrySet()) {
+                if (!e.getKey().isEmpty() && uri.equals(e.getValue())
+                    && uri.equals(lookup(e.getKey(), declarations))) {
+                    return e.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the string, escaping characters as required by the context. Strings that do not need to be escaped,
+     * which is the common case, are written in one piece.
+     */
+    private void writeEscaped(final String s, final Context context) throws IOException {
+        int start = 0;
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            String replacement = escape(c, context);
+            if (replacement == null) {
+                i++;
+            } else {
+                m_out.write(s, start, i - start);
+                m_out.write(replacement);
+                if (Character.isHighSurrogate(c) && (i + 1 < s.length()) && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // a surrogate pair is a single code point and is therefore replaced by a single character
+                    i += 2;
+                } else {
+                    i++;
+                }
+                start = i;
+            }
+        }
+        m_out.write(s, start, s.length() - start);
+    }
+
+    private static String escape(final char c, final Context context) {
+        if (c >= 0x20) {
+            if (Character.isSurrogate(c) || (c == 0xFFFE) || (c == 0xFFFF)) {
+                return REPLACEMENT_STRING;
+            } else if (context == Context.RAW) {
+                return null;
+            }
+        }
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return (context == Context.TEXT) ? "&gt;" : null;
+            case '"':
+                return (context == Context.ATTRIBUTE) ? "&quot;" : null;
+            case '\t':
+                return (context == Context.ATTRIBUTE) ? "&#9;" : null;
+            case '\n':
+                return (context == Context.ATTRIBUTE) ? "&#10;" : null;
+            case '\r':
+                return (context == Context.RAW) ? null : "&#13;";
+            default:
+                // other control characters are not allowed in XML documents
+                return (c < 0x20) ? REPLACEMENT_STRING : null;
+        }
+    }
+
+    private static boolean isWhitespace(final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nullToEmpty(final String s) {
+        return s == null ? "" : s;
+    }
+}
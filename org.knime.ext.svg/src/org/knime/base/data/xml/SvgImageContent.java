@@ -50,6 +50,7 @@
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -57,25 +58,21 @@
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.anim.dom.SVGDOMImplementation;
-import org.apache.batik.bridge.BridgeContext;
-import org.apache.batik.bridge.GVTBuilder;
-import org.apache.batik.bridge.UserAgent;
-import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.constants.XMLConstants;
 import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.svg2svg.SVGTranscoder;
+import org.apache.batik.util.SVGConstants;
 import org.apache.batik.util.XMLResourceDescriptor;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.image.ImageContent;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.w3c.dom.Element;
 import org.w3c.dom.svg.SVGDocument;
 import org.xml.sax.SAXException;
 
@@ -85,13 +82,21 @@
  * @author Thorsten Meinl, University of Konstanz
  */
 public class SvgImageContent implements ImageContent {
-    private static final SVGTranscoder TRANSCODER = new SVGTranscoder();
+    private static final Pattern LENGTH_PATTERN =
+        Pattern.compile("\\s*\\+?((?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][+-]?\\d+)?)\\s*(px|in|cm|mm|pt|pc)?\\s*");
 
     private SVGDocument m_doc;
 
     private Dimension m_preferredSize;
 
-    private static final UserAgent UA = new UserAgentAdapter();
+    /**
+     * Whether the preferred size is taken from the size declared by the document, otherwise it is taken from the
+     * bounds of the image as before KNIME 5.11.
+     */
+    private boolean m_declaredSize = true;
+
+    /** Provides the read-only snapshot of the owning SVG cell, <code>null</code> if there is none. */
+    private volatile Supplier<SVGDocument> m_snapshotSupplier;
 
     /**
      * Creates a new SVG image content containing the passed SVG document.
@@ -121,22 +126,123 @@ public SvgImageContent(final SVGDocument doc, final boolean check) {
         m_doc = doc;
 
         if (check) {
-            // check if the SVG document is valid
-            GVTBuilder gvtBuilder = new GVTBuilder();
-            BridgeContext bridgeContext = new BridgeContext(UA);
-            GraphicsNode gvtRoot = gvtBuilder.build(bridgeContext, m_doc);
-            if (gvtRoot == null || gvtRoot.getBounds() == null) {
+            // check if the SVG document is valid, the tree is not cached because the document may still be modified
+            GraphicsNode gvtRoot = getGvtRoot();
+            if (gvtRoot == null || getBounds(gvtRoot) == null) {
                 throw new IllegalArgumentException(
                         "SVG document seems to be corrupt or does not "
                                 + " contain a proper SVG image");
             } else {
-                m_preferredSize =
-                        new Dimension((int)gvtRoot.getBounds().getWidth(),
-                                (int)gvtRoot.getBounds().getHeight());
+                m_preferredSize = getIntrinsicSize(m_doc);
+                if (m_preferredSize == null) {
+                    m_preferredSize = toDimension(getBounds(gvtRoot));
+                }
             }
         }
     }
 
+    /**
+     * Creates a new SVG image content containing the passed SVG document whose preferred size is already known.
+     *
+     * @param doc an SVG document, must not be <code>null</code>
+     * @param preferredSize the preferred size, may be <code>null</code> if it is not known
+     */
+    SvgImageContent(final SVGDocument doc, final Dimension preferredSize) {
+        this(doc, false);
+        m_preferredSize = preferredSize;
+    }
+
+    /**
+     * Returns the size of the image that is declared by the <code>width</code> and <code>height</code> attributes of
+     * the root element or, if both are missing, by its <code>viewBox</code>. Absolute units are converted into pixels
+     * at 96dpi.
+     *
+     * @param doc an SVG document
+     * @return the declared size or <code>null</code> if the size is not declared or uses relative units
+     */
+    static Dimension getIntrinsicSize(final SVGDocument doc) {
+        Element root = doc.getDocumentElement();
+        if (root == null) {
+            return null;
+        }
+        String width = root.getAttributeNS(null, SVGConstants.SVG_WIDTH_ATTRIBUTE);
+        String height = root.getAttributeNS(null, SVGConstants.SVG_HEIGHT_ATTRIBUTE);
+        if (width.isEmpty() && height.isEmpty()) {
+            String[] viewBox = root.getAttributeNS(null, SVGConstants.SVG_VIEW_BOX_ATTRIBUTE).trim().split("[\\s,]+");
+            if (viewBox.length != 4) {
+                return null;
+            }
+            width = viewBox[2];
+            height = viewBox[3];
+        }
+        double w = toPixels(width);
+        double h = toPixels(height);
+        if (!(w > 0) || !(h > 0)) {
+            return null;
+        }
+        return new Dimension((int)w, (int)h);
+    }
+
+    private static double toPixels(final String length) {
+        Matcher m = LENGTH_PATTERN.matcher(length);
+        if (!m.matches()) {
+            return Double.NaN;
+        }
+        double value = Double.parseDouble(m.group(1));
+        String unit = m.group(2);
+        if (unit == null || unit.equals("px")) {
+            return value;
+        }
+        switch (unit) {
+            case "in":
+                return value * 96;
+            case "cm":
+                return value * 96 / 2.54;
+            case "mm":
+                return value * 96 / 25.4;
+            case "pt":
+                return value * 96 / 72;
+            case "pc":
+                return value * 16;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * Sets the supplier for the read-only snapshot of the SVG cell that owns this content. The GVT trees and images
+     * of snapshots are cached for painting, while the document of this content may still be modified by its users.
+     *
+     * @param snapshotSupplier supplies a snapshot that is equal to the document and never modified
+     */
+    void setSnapshotSupplier(final Supplier<SVGDocument> snapshotSupplier) {
+        m_snapshotSupplier = snapshotSupplier;
+    }
+
+    /**
+     * Returns the GVT tree from the cache if there is a snapshot, otherwise a new tree for the document.
+     */
+    private GraphicsNode getGvtRoot() {
+        Supplier<SVGDocument> snapshotSupplier = m_snapshotSupplier;
+        if (snapshotSupplier != null) {
+            return GvtCache.get(snapshotSupplier.get());
+        }
+        // building the tree attaches a CSS engine to the document, therefore builds must not run concurrently
+        synchronized (m_doc) {
+            return GvtCache.build(m_doc);
+        }
+    }
+
+    private static Rectangle2D getBounds(final GraphicsNode gvtRoot) {
+        synchronized (gvtRoot) {
+            return gvtRoot.getBounds();
+        }
+    }
+
+    private static Dimension toDimension(final Rectangle2D bounds) {
+        return new Dimension((int)bounds.getWidth(), (int)bounds.getHeight());
+    }
+
     /**
      * Creates a new SVG image content by reading the XML from the passed input
      * stream.
@@ -194,7 +300,32 @@ public void startDocument() throws SAXException {
     @Override
     public void paint(final Graphics2D g, final int width, final int height) {
         Rectangle componentBounds = new Rectangle(new Dimension(width, height));
-        SvgValueRenderer.paint(m_doc, g, componentBounds, true);
+        Supplier<SVGDocument> snapshotSupplier = m_snapshotSupplier;
+        if (snapshotSupplier != null) {
+            SvgValueRenderer.paintCached(snapshotSupplier.get(), g, componentBounds, true);
+        } else {
+            SvgValueRenderer.paint(m_doc, g, componentBounds, true);
+        }
+    }
+
+    /**
+     * Makes the preferred size be taken from the bounds of the image even if the document declares its size, as for
+     * SVG cells that have been written before KNIME 5.11. It must be called before the preferred size is determined.
+     */
+    void useBoundsAsPreferredSize() {
+        m_declaredSize = false;
+    }
+
+    /**
+     * Returns the preferred size if it is already known or declared by the document, without building the GVT tree.
+     *
+     * @return the preferred size or <code>null</code> if it can only be determined from the bounds of the image
+     */
+    Dimension getKnownPreferredSize() {
+        if ((m_preferredSize == null) && m_declaredSize) {
+            m_preferredSize = getIntrinsicSize(m_doc);
+        }
+        return m_preferredSize;
     }
 
     /**
@@ -202,19 +333,19 @@ public void paint(final Graphics2D g, final int width, final int height) {
      */
     @Override
     public Dimension getPreferredSize() {
+        if ((m_preferredSize == null) && m_declaredSize) {
+            m_preferredSize = getIntrinsicSize(m_doc);
+        }
         if (m_preferredSize == null) {
-            GVTBuilder gvtBuilder = new GVTBuilder();
-            BridgeContext bridgeContext = new BridgeContext(UA);
-            GraphicsNode gvtRoot = gvtBuilder.build(bridgeContext, m_doc);
-            if (gvtRoot == null || gvtRoot.getBounds() == null) {
+            GraphicsNode gvtRoot = getGvtRoot();
+            Rectangle2D bounds = (gvtRoot == null) ? null : getBounds(gvtRoot);
+            if (bounds == null) {
                 // should not happen since we already checked this
                 // in the constructor
                 return new Dimension(100, 100);
             }
 
-            m_preferredSize =
-                    new Dimension((int)gvtRoot.getBounds().getWidth(),
-                            (int)gvtRoot.getBounds().getHeight());
+            m_preferredSize = toDimension(bounds);
         }
         return m_preferredSize;
 
@@ -234,11 +365,7 @@ public DataCell toImageCell() {
     @Override
     public void save(final OutputStream out) throws IOException {
         OutputStreamWriter osw = new OutputStreamWriter(out, Charset.forName("UTF-8"));
-        try {
-            serialize(m_doc, osw);
-        } catch (TranscoderException e) {
-            throw new IOException(e);
-        }
+        serialize(m_doc, osw);
         osw.flush();
     }
 
@@ -247,87 +374,36 @@ SVGDocument getSvgDocument() {
     }
 
     /**
-     * Serializes the given document into a XML string.
+     * Serializes the given document into a XML string. This method is thread-safe, different documents can be
+     * serialized concurrently.
      *
      * @param doc and SVG document
      * @return a string containing the XML representation
-     * @throws TranscoderException
+     * @throws TranscoderException if the document cannot be serialized
      *
      * @since 2.6
      */
     public static String serialize(final Document doc) throws TranscoderException {
         StringWriter buffer = new StringWriter(1024);
-        serialize(doc, buffer);
+        try {
+            serialize(doc, buffer);
+        } catch (IOException ex) {
+            throw new TranscoderException(ex);
+        }
         return buffer.toString();
     }
 
-    private static void serialize(final Document doc, final Writer writer) throws TranscoderException {
-        // see below (AP-18895)
-        replaceUnsupportedUnicode(doc);
-
-        TranscoderOutput out = new TranscoderOutput(writer);
-        TranscoderInput in = new TranscoderInput(doc);
-        TRANSCODER.transcode(in, out);
-    }
-
     /**
-     * Pattern that matches all Unicode characters outside the Basic Multilingual Plane
-     */
-    private static final Pattern UNSUPPORTED_UNICODE = Pattern.compile("[\\x{10000}-\\x{10FFFF}]");
-
-    /**
-     * This is a single-char string containing U+FFFD REPLACEMENT CHARACTER.
-     */
-    private static final String REPLACEMENT_STRING = String.valueOf((char)0xFFFD);
-
-    /**
-     * As to why we need this method, consult AP-18895.
-     *
-     * tl;dr: This method is obsolete, once an issue with Apache Batik has been addressed. This bug causes a
-     * {@code RuntimeException}, iff the SVG contains a Unicode character in the 0+10000 to U+10FFFF range. This will
-     * (hopefully) eventually be addressed by https://issues.apache.org/jira/browse/BATIK-1328.
-     *
-     * This method recursively replaces all of those characters with U+FFFD REPLACEMENT CHARACTER.
-     *
-     * See {@link "https://www.w3.org/TR/DOM-Level-3-Core/core.html"}, where the structure and inheritance model of a
-     * {@code DOM} is described.
-     *
-     * TODO get rid of this function once batik supports transcoding aforementioned characters
+     * Serializes the given document into the given writer. This method is thread-safe, different documents can be
+     * serialized concurrently.
      *
-     * @param n the root node, e.g. an SVG {@link Document}
+     * @param doc an SVG document
+     * @param writer the writer
+     * @throws IOException if the document cannot be written
      */
-    private static void replaceUnsupportedUnicode(final Node n) {
-        switch (n.getNodeType()) {
-            case Node.CDATA_SECTION_NODE:
-            case Node.COMMENT_NODE:
-            case Node.TEXT_NODE:
-                // CDATA sections, comments and text nodes are the node types that contain strings.
-                // We replace the contained strings with a new string, in that all invalid characters are replaced.
-                var newText = UNSUPPORTED_UNICODE.matcher(n.getNodeValue()).replaceAll(REPLACEMENT_STRING);
-                n.setNodeValue(newText);
-                break;
-            case Node.ELEMENT_NODE:
-                // Besides children (handled later), element nodes have attributes, that also contain text.
-                var attributes = n.getAttributes();
-                for (var i = 0; i < attributes.getLength(); ++i) {
-                    // recurse into attribute (contains a text node)
-                    replaceUnsupportedUnicode(attributes.item(i));
-                }
-                // no break: elements have children, too
-            case Node.DOCUMENT_NODE:
-            case Node.DOCUMENT_FRAGMENT_NODE:
-            case Node.ENTITY_REFERENCE_NODE:
-            case Node.ATTRIBUTE_NODE:
-            case Node.ENTITY_NODE:
-                // All of the above node types can have children containing strings we want to replace
-                var children = n.getChildNodes();
-                for (var i = 0; i < children.getLength(); ++i) {
-                    // recurse into child
-                    replaceUnsupportedUnicode(children.item(i));
-                }
-                break;
-            default:
-        }
+    static void serialize(final Document doc, final Writer writer) throws IOException {
+        // the writer also replaces characters that Batik cannot handle (AP-18895) without modifying the document
+        SvgDomWriter.write(doc, writer, false);
     }
 
     /**
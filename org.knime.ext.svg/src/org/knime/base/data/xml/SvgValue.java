@@ -49,6 +49,7 @@
 
 import javax.swing.Icon;
 
+import org.apache.batik.dom.util.DOMUtilities;
 import org.knime.core.data.DataValue;
 import org.knime.core.data.ExtensibleUtilityFactory;
 import org.knime.core.data.convert.DataValueAccessMethod;
@@ -77,6 +78,22 @@ public interface SvgValue extends ImageValue, XMLValue<SVGDocument> {
     @DataValueAccessMethod(name = "SVGDocument")
     SVGDocument getDocument();
 
+    /**
+     * Returns a copy of the SVG document that is owned by the caller. In contrast to the document provided by
+     * {@link #getDocumentSupplier()} it can be read or even modified without holding a lock, so that several threads
+     * can e.g. render the same value concurrently. The default implementation clones the document while holding the
+     * lock of {@link #getDocumentSupplier()}.
+     *
+     * @return a new SVG document
+     * @since 5.11
+     */
+    default SVGDocument getDocumentCopy() {
+        try (LockedSupplier<SVGDocument> supplier = getDocumentSupplier()) {
+            SVGDocument doc = supplier.get();
+            return (SVGDocument)DOMUtilities.deepCloneDocument(doc, doc.getImplementation());
+        }
+    }
+
     /**
      * Meta information to this value type.
      *
@@ -93,6 +110,12 @@ public interface SvgValue extends ImageValue, XMLValue<SVGDocument> {
      * @since 3.0
      */
     static boolean equalContent(final SvgValue v1, final SvgValue v2) {
+        SvgCellContent c1 = SvgCellContent.of(v1);
+        SvgCellContent c2 = SvgCellContent.of(v2);
+        if ((c1 != null) && (c2 != null)) {
+            return c1.contentEquals(c2);
+        }
+
         try (LockedSupplier<SVGDocument> s1 = v1.getDocumentSupplier();
                 LockedSupplier<SVGDocument> s2 = v2.getDocumentSupplier()) {
             return XmlDomComparer.equals(s1.get(), s2.get(), SvgCell.SVG_XML_CUSTOMIZER);
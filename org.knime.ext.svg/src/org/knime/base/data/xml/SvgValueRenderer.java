@@ -59,12 +59,9 @@
 import java.util.Optional;
 import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.batik.bridge.BridgeContext;
-import org.apache.batik.bridge.GVTBuilder;
-import org.apache.batik.bridge.UserAgent;
-import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.gvt.renderer.StaticRenderer;
+import org.apache.batik.util.HaltingThread;
 import org.knime.core.data.DataColumnProperties;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.renderer.AbstractDataValueRendererFactory;
@@ -129,6 +126,15 @@ public DataValueRenderer createRenderer(final DataColumnSpec colSpec) {
     public static final String OPTION_PREFERRED_WIDTH = SvgValueRenderer.class
             + ".preferredWidth";
 
+    /**
+     * Client property that disables the caches for rasterized images and GVT trees if it is set to
+     * {@link Boolean#TRUE} on the renderer component. It should be set for offscreen batch rendering of values that
+     * are painted only once, so that their images do not replace the cached images of interactive views.
+     *
+     * @since 5.11
+     */
+    public static final String CLIENT_PROPERTY_UNCACHED = SvgValueRenderer.class.getName() + ".uncached";
+
     static final String DESCRIPTION = "SVG renderer";
 
     private SVGDocument m_doc;
@@ -136,8 +142,6 @@ public DataValueRenderer createRenderer(final DataColumnSpec colSpec) {
     private static final Font NO_SVG_FONT = new Font(Font.SANS_SERIF,
             Font.ITALIC, 12);
 
-    private static final UserAgent UA = new UserAgentAdapter();
-
     private static final RenderingHints R_HINTS = new RenderingHints(
             RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -190,17 +194,20 @@ private static Optional<Dimension> getPreferredSizeFromProps(final DataColumnPro
      */
     @Override
     protected void setValue(final Object value) {
-        if (!(value instanceof SvgValue)) {
-            m_doc = null;
-            return;
-        }
+        m_doc = null;
+        // the document is only retrieved when it is painted, the preferred size is usually known without it
+        m_currentValue = (value instanceof SvgValue) ? (SvgValue)value : null;
+    }
 
-        m_currentValue = (SvgValue)value;
-        try (LockedSupplier<SVGDocument> supplier = m_currentValue.getDocumentSupplier()) {
-            m_doc = supplier.get();
-        } catch (Exception ex) {
-            throw new RuntimeException("Unable to render SVG", ex);
+    private SVGDocument getDocument() {
+        if ((m_doc == null) && (m_currentValue != null)) {
+            try (LockedSupplier<SVGDocument> supplier = m_currentValue.getDocumentSupplier()) {
+                m_doc = supplier.get();
+            } catch (Exception ex) {
+                throw new RuntimeException("Unable to render SVG", ex);
+            }
         }
+        return m_doc;
     }
 
     /**
@@ -209,13 +216,27 @@ protected void setValue(final Object value) {
     @Override
     protected void paintComponent(final Graphics g) {
         super.paintComponent(g);
-        if (m_doc == null) {
+        // SVG cells provide a read-only snapshot, so that painting does not
+        // contend for the cell's lock and its images can be cached; the
+        // documents of other values may still be modified
+        SvgCellContent content = (m_currentValue == null) ? null
+                : SvgCellContent.of(m_currentValue);
+        SVGDocument doc = (content != null) ? content.getSnapshot()
+                : getDocument();
+        if (doc == null) {
             g.setFont(NO_SVG_FONT);
             g.drawString("?", 2, 14);
             return;
         }
 
-        paint(m_doc, (Graphics2D)g, getBounds(), m_keepAspectRatio);
+        if ((content == null) || Boolean.TRUE
+                .equals(getClientProperty(CLIENT_PROPERTY_UNCACHED))) {
+            paint(doc, (Graphics2D)g, new Rectangle(getSize()),
+                    m_keepAspectRatio);
+        } else {
+            paintCached(doc, (Graphics2D)g, new Rectangle(getSize()),
+                    m_keepAspectRatio);
+        }
     }
 
     /**
@@ -237,7 +258,7 @@ public Dimension getPreferredSize() {
             return m_preferredSize;
         }
         if (m_currentValue != null) {
-            return m_currentValue.getImageContent().getPreferredSize();
+            return SvgCellFactory.getPreferredSize(m_currentValue);
         }
         return new Dimension(DEFAULT__PREFERRED_WIDTH, DEFAULT_PREFERRED_HEIGHT);
     }
@@ -247,7 +268,7 @@ public Dimension getPreferredSize(final Dimension viewPortDimension) {
         if (m_keepAspectRatio == false || m_currentValue == null) {
             return viewPortDimension;
         }
-        var preferredSize = m_currentValue.getImageContent().getPreferredSize();
+        var preferredSize = SvgCellFactory.getPreferredSize(m_currentValue);
         double aspectRatio = (double)preferredSize.width / preferredSize.height;
         double width = viewPortDimension.height * aspectRatio;
         if (width <= viewPortDimension.width) {
@@ -260,7 +281,9 @@ public Dimension getPreferredSize(final Dimension viewPortDimension) {
 
     /**
      * Renders an SVG document on a graphics object. The image is scaled to fit
-     * in the specified bounds.
+     * in the specified bounds. If the graphics object is scaled, e.g. on HiDPI
+     * screens or when rendering images with a device scale, the document is
+     * rasterized at the device resolution.
      *
      * @param doc an SVG document
      * @param g the graphics object
@@ -276,15 +299,119 @@ public static void paint(final SVGDocument doc, final Graphics2D g,
             return;
         }
 
-        GVTBuilder gvtBuilder = new GVTBuilder();
-        BridgeContext bridgeContext = new BridgeContext(UA);
-        GraphicsNode gvtRoot = gvtBuilder.build(bridgeContext, doc);
+        GraphicsNode gvtRoot;
+        // building the tree attaches a CSS engine to the document, therefore
+        // builds must not run concurrently
+        synchronized (doc) {
+            gvtRoot = GvtCache.build(doc);
+        }
+        RasterCache.Raster raster = (gvtRoot == null) ? null
+                : render(gvtRoot, componentBounds.getSize(), keepAspectRatio,
+                        getDeviceScaleX(g), getDeviceScaleY(g));
+        draw(raster, g, componentBounds);
+    }
 
+    /**
+     * Renders the read-only snapshot of an SVG cell, which is never
+     * modified, on a graphics object. The rasterized image is
+     * taken from the {@link RasterCache} if the document has been painted with
+     * the same size and device scale before, otherwise it is rendered from
+     * the GVT tree in the
+     * {@link GvtCache}. Images are cached independently of the position of
+     * the bounds and translated when they are drawn.
+     *
+     * @param doc the snapshot of an SVG cell
+     * @param g the graphics object
+     * @param componentBounds the bound in which the image should be drawn
+     * @param keepAspectRatio <code>true</code> if the aspect ratio should be
+     *            kept, <code>false</code> if the image should be scaled in both
+     *            direction to the maximum
+     */
+    static void paintCached(final SVGDocument doc, final Graphics2D g,
+            final Rectangle componentBounds, final boolean keepAspectRatio) {
+        if ((componentBounds.getHeight() < 1)
+                || (componentBounds.getWidth() < 1)) {
+            return;
+        }
+
+        Dimension size = componentBounds.getSize();
+        double deviceScaleX = getDeviceScaleX(g);
+        double deviceScaleY = getDeviceScaleY(g);
+        RasterCache.Raster raster = RasterCache.get(doc, size,
+                keepAspectRatio, deviceScaleX, deviceScaleY);
+        if (raster == null) {
+            GraphicsNode gvtRoot = GvtCache.get(doc);
+            if (gvtRoot != null) {
+                synchronized (gvtRoot) {
+                    raster = render(gvtRoot, size, keepAspectRatio,
+                            deviceScaleX, deviceScaleY);
+                }
+            }
+            if (raster != null) {
+                RasterCache.put(doc, size, keepAspectRatio, raster);
+            }
+        }
+        draw(raster, g, componentBounds);
+    }
+
+    /**
+     * Draws a raster, whose offset is relative to the origin of the
+     * component bounds, at the position of the bounds.
+     */
+    private static void draw(final RasterCache.Raster raster,
+            final Graphics2D g, final Rectangle componentBounds) {
+        int x = componentBounds.x;
+        int y = componentBounds.y;
+        if (raster == null) {
+            g.setFont(NO_SVG_FONT);
+            g.drawString("Invalid SVG", x + 2, y + 14);
+        } else if ((raster.getScaleX() == 1) && (raster.getScaleY() == 1)) {
+            g.drawImage(raster.getImage(), x + raster.getX(),
+                    y + raster.getY(), null);
+        } else {
+            AffineTransform transform = AffineTransform.getTranslateInstance(
+                    x + raster.getX(), y + raster.getY());
+            transform.scale(1 / raster.getScaleX(), 1 / raster.getScaleY());
+            g.drawImage(raster.getImage(), transform, null);
+        }
+    }
+
+    /**
+     * Returns the horizontal scale of the graphics' transformation, i.e. the
+     * number of device pixels per user space unit. Rotated, sheared or
+     * degenerated transformations are treated as unscaled.
+     */
+    private static double getDeviceScaleX(final Graphics2D g) {
+        AffineTransform transform = g.getTransform();
+        if ((transform.getType() & ~(AffineTransform.TYPE_TRANSLATION
+                | AffineTransform.TYPE_MASK_SCALE)) != 0) {
+            return 1;
+        }
+        double scale = Math.abs(transform.getScaleX());
+        return (scale > 0) ? scale : 1;
+    }
+
+    private static double getDeviceScaleY(final Graphics2D g) {
+        AffineTransform transform = g.getTransform();
+        if ((transform.getType() & ~(AffineTransform.TYPE_TRANSLATION
+                | AffineTransform.TYPE_MASK_SCALE)) != 0) {
+            return 1;
+        }
+        double scale = Math.abs(transform.getScaleY());
+        return (scale > 0) ? scale : 1;
+    }
+
+    /**
+     * Renders the tree into an image of the passed size, the offset of the
+     * returned raster is relative to the origin of the component bounds.
+     */
+    private static RasterCache.Raster render(final GraphicsNode gvtRoot,
+            final Dimension size, final boolean keepAspectRatio,
+            final double deviceScaleX, final double deviceScaleY) {
+        Rectangle componentBounds = new Rectangle(size);
         Rectangle2D svgBounds = gvtRoot.getBounds();
         if (svgBounds == null) {
-            g.setFont(NO_SVG_FONT);
-            g.drawString("Invalid SVG", 2, 14);
-            return;
+            return null;
         }
 
         double scaleX = (componentBounds.getWidth() - 2) / svgBounds.getWidth();
@@ -295,16 +422,25 @@ public static void paint(final SVGDocument doc, final Graphics2D g,
             scaleY = Math.min(scaleX, scaleY);
         }
 
-        AffineTransform transform = new AffineTransform();
+        AffineTransform transform =
+                AffineTransform.getScaleInstance(deviceScaleX, deviceScaleY);
         transform.scale(scaleX, scaleY);
         transform.translate(-svgBounds.getX(), -svgBounds.getY());
 
         StaticRenderer renderer = new StaticRenderer(R_HINTS, transform);
         renderer.setTree(gvtRoot);
-        renderer.updateOffScreen((int)componentBounds.getWidth(),
-                (int)componentBounds.getHeight());
+        renderer.updateOffScreen(
+                (int)Math.ceil(componentBounds.getWidth() * deviceScaleX),
+                (int)Math.ceil(componentBounds.getHeight() * deviceScaleY));
         renderer.clearOffScreen();
-        renderer.repaint(componentBounds);
+        renderer.repaint(AffineTransform
+                .getScaleInstance(deviceScaleX, deviceScaleY)
+                .createTransformedShape(componentBounds));
+        if (HaltingThread.hasBeenHalted()) {
+            // Batik stops painting halted threads, the image is incomplete
+            // and must not be cached
+            return null;
+        }
         final BufferedImage image = renderer.getOffScreen();
 
         double heightDiff =
@@ -313,7 +449,8 @@ public static void paint(final SVGDocument doc, final Graphics2D g,
         double widthDiff =
                 componentBounds.getWidth() - scaleX * svgBounds.getWidth();
 
-        g.drawImage(image, (int)(widthDiff / 2), (int)(heightDiff / 2), null);
+        return new RasterCache.Raster(image, (int)(widthDiff / 2),
+                (int)(heightDiff / 2), deviceScaleX, deviceScaleY);
     }
 
     /**
@@ -323,7 +460,7 @@ public static void paint(final SVGDocument doc, final Graphics2D g,
     @Deprecated
     @Override
     public SVGDocument getSvg() {
-        return m_doc;
+        return getDocument();
     }
 
     /**
@@ -332,6 +469,6 @@ public SVGDocument getSvg() {
      */
     @Override
     public LockedSupplier<SVGDocument> getSvgSupplier() {
-        return new LockedSupplier<SVGDocument>(m_doc, m_lock);
+        return new LockedSupplier<SVGDocument>(getDocument(), m_lock);
     }
 }
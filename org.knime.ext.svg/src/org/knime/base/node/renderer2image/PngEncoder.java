@@ -0,0 +1,336 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encoder for PNG images that is optimized for encoding many images of the same size in a row. The image that is
+ * painted on, the buffer for the filtered scanlines, the output buffer and the {@link Deflater} are all reused between
+ * images, therefore an encoder must only be used by one thread at a time.
+ *
+ * <p>
+ * Images are written with 8 bit per channel in a single IDAT chunk, as RGB if they are fully opaque and as RGBA
+ * otherwise. Each scanline uses the <em>sub</em> filter, which is cheap to compute and compresses the large uniform
+ * areas of rendered images well. Below the maximum quality, the color channels are reduced to fewer levels before
+ * encoding, which makes images considerably smaller while they still remain regular PNG images. Images that have been
+ * painted with supersampling can be reduced to their final size with {@link #downsample(BufferedImage, int)}, which
+ * also reuses its target image.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final int FILTER_SUB = 1;
+
+    private final Deflater m_deflater;
+
+    /** Maps channel values to their reduced levels, <code>null</code> for lossless encoding. */
+    private final byte[] m_levels;
+
+    private final CRC32 m_crc = new CRC32();
+
+    private BufferedImage m_image;
+
+    private BufferedImage m_downsampled;
+
+    private byte[] m_scanlines = new byte[0];
+
+    private int[] m_row = new int[0];
+
+    private byte[] m_out = new byte[8192];
+
+    private int m_length;
+
+    /**
+     * Creates a new lossless encoder.
+     *
+     * @param compressionLevel the deflate level between 0 (no compression, fastest) and 9 (best compression, slowest)
+     */
+    PngEncoder(final int compressionLevel) {
+        this(compressionLevel, 100);
+    }
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param compressionLevel the deflate level between 0 (no compression, fastest) and 9 (best compression, slowest)
+     * @param quality the quality between 0 and 100; 100 is lossless, below the color channels are reduced to 7 (75
+     *            and above), 6 (50 and above), 5 (25 and above) or 4 bits
+     */
+    PngEncoder(final int compressionLevel, final int quality) {
+        m_deflater = new Deflater(compressionLevel);
+        int bits = 4 + Math.max(0, Math.min(100, quality)) / 25;
+        if (bits < 8) {
+            int max = (1 << bits) - 1;
+            m_levels = new byte[256];
+            for (int v = 0; v < 256; v++) {
+                int level = (v * max + 127) / 255;
+                m_levels[v] = (byte)((level * 255 + max / 2) / max);
+            }
+        } else {
+            m_levels = null;
+        }
+    }
+
+    /**
+     * Returns a fully transparent ARGB image of the given size. The image is reused by the next call of this method.
+     *
+     * @param width the image's width
+     * @param height the image's height
+     * @return a cleared image
+     * @throws ArithmeticException if the image has more pixels than an array can hold
+     */
+    BufferedImage getImage(final int width, final int height) {
+        if ((m_image == null) || (m_image.getWidth() != width) || (m_image.getHeight() != height)) {
+            // the raster does not check for overflows of its buffer size
+            Math.multiplyExact(width, height);
+            m_image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            Arrays.fill(((DataBufferInt)m_image.getRaster().getDataBuffer()).getData(), 0);
+        }
+        return m_image;
+    }
+
+    /**
+     * Reduces an image returned by {@link #getImage(int, int)} by the given integer factor. Each pixel of the result
+     * is the alpha-weighted average of a block of <code>factor</code> &times; <code>factor</code> pixels, so that
+     * semi-transparent edges do not darken. The returned image is reused by the next call of this method.
+     *
+     * @param image an image returned by {@link #getImage(int, int)} whose size is a multiple of the factor
+     * @param factor the reduction factor, at least 1
+     * @return the reduced image or the passed image if the factor is 1
+     */
+    BufferedImage downsample(final BufferedImage image, final int factor) {
+        if (factor <= 1) {
+            return image;
+        }
+        final int width = image.getWidth() / factor;
+        final int height = image.getHeight() / factor;
+        if ((m_downsampled == null) || (m_downsampled.getWidth() != width)
+            || (m_downsampled.getHeight() != height)) {
+            Math.multiplyExact(width, height);
+            m_downsampled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        final int[] src = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        final int[] dest = ((DataBufferInt)m_downsampled.getRaster().getDataBuffer()).getData();
+        final int srcWidth = image.getWidth();
+        final int samples = factor * factor;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long a = 0;
+                long r = 0;
+                long g = 0;
+                long b = 0;
+                for (int sy = y * factor; sy < (y + 1) * factor; sy++) {
+                    int offset = sy * srcWidth + x * factor;
+                    for (int sx = 0; sx < factor; sx++) {
+                        int argb = src[offset + sx];
+                        int alpha = argb >>> 24;
+                        a += alpha;
+                        r += alpha * ((argb >>> 16) & 0xff);
+                        g += alpha * ((argb >>> 8) & 0xff);
+                        b += alpha * (argb & 0xff);
+                    }
+                }
+                if (a == 0) {
+                    dest[y * width + x] = 0;
+                } else {
+                    dest[y * width + x] = (int)(((a + samples / 2) / samples) << 24 | ((r + a / 2) / a) << 16
+                        | ((g + a / 2) / a) << 8 | ((b + a / 2) / a));
+                }
+            }
+        }
+        return m_downsampled;
+    }
+
+    /**
+     * Encodes the passed image as PNG.
+     *
+     * @param image an image
+     * @return a new array holding the PNG file
+     * @throws ArithmeticException if the image's scanlines or the PNG file do not fit into an array
+     */
+    byte[] encode(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+
+        // the pixels of our own images can be read directly, other images are converted row by row
+        int[] pixels = null;
+        if ((image == m_image) || (image == m_downsampled)) {
+            pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        } else if (m_row.length < width) {
+            m_row = new int[width];
+        }
+        final boolean opaque = (pixels != null) ? isOpaque(pixels) : !image.getColorModel().hasAlpha();
+
+        final int stride = Math.addExact(1, Math.multiplyExact(opaque ? 3 : 4, width));
+        final int scanlinesLength = Math.multiplyExact(stride, height);
+        if (m_scanlines.length < scanlinesLength) {
+            m_scanlines = new byte[scanlinesLength];
+        }
+        for (int y = 0; y < height; y++) {
+            int offset;
+            int[] row;
+            if (pixels != null) {
+                row = pixels;
+                offset = y * width;
+            } else {
+                row = image.getRGB(0, y, width, 1, m_row, 0, width);
+                offset = 0;
+            }
+            int pos = y * stride;
+            m_scanlines[pos++] = FILTER_SUB;
+            int prev = 0;
+            for (int x = 0; x < width; x++) {
+                int argb = row[offset + x];
+                if (m_levels != null) {
+                    argb = (argb & 0xff000000) | ((m_levels[(argb >>> 16) & 0xff] & 0xff) << 16)
+                        | ((m_levels[(argb >>> 8) & 0xff] & 0xff) << 8) | (m_levels[argb & 0xff] & 0xff);
+                }
+                m_scanlines[pos++] = (byte)((argb >>> 16) - (prev >>> 16));
+                m_scanlines[pos++] = (byte)((argb >>> 8) - (prev >>> 8));
+                m_scanlines[pos++] = (byte)(argb - prev);
+                if (!opaque) {
+                    m_scanlines[pos++] = (byte)((argb >>> 24) - (prev >>> 24));
+                }
+                prev = argb;
+            }
+        }
+
+        m_length = 0;
+        ensureCapacity(SIGNATURE.length);
+        System.arraycopy(SIGNATURE, 0, m_out, 0, SIGNATURE.length);
+        m_length = SIGNATURE.length;
+
+        int start = startChunk("IHDR");
+        writeInt(width);
+        writeInt(height);
+        writeByte(8); // bit depth
+        writeByte(opaque ? 2 : 6); // color type RGB or RGBA
+        writeByte(0); // compression method
+        writeByte(0); // filter method
+        writeByte(0); // no interlace
+        endChunk(start);
+
+        start = startChunk("IDAT");
+        m_deflater.reset();
+        m_deflater.setInput(m_scanlines, 0, scanlinesLength);
+        m_deflater.finish();
+        while (!m_deflater.finished()) {
+            ensureCapacity(8192);
+            m_length += m_deflater.deflate(m_out, m_length, m_out.length - m_length);
+        }
+        endChunk(start);
+
+        endChunk(startChunk("IEND"));
+        return Arrays.copyOf(m_out, m_length);
+    }
+
+    private static boolean isOpaque(final int[] pixels) {
+        for (int argb : pixels) {
+            if ((argb >>> 24) != 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases the native resources of the encoder. It must not be used afterwards.
+     */
+    void dispose() {
+        m_deflater.end();
+    }
+
+    /** Writes the chunk header with a placeholder for its length and returns the start position. */
+    private int startChunk(final String type) {
+        int start = m_length;
+        writeInt(0);
+        for (int i = 0; i < 4; i++) {
+            writeByte(type.charAt(i));
+        }
+        return start;
+    }
+
+    /** Fills in the length of the chunk and appends its CRC. */
+    private void endChunk(final int start) {
+        int dataLength = m_length - start - 8;
+        m_out[start] = (byte)(dataLength >>> 24);
+        m_out[start + 1] = (byte)(dataLength >>> 16);
+        m_out[start + 2] = (byte)(dataLength >>> 8);
+        m_out[start + 3] = (byte)dataLength;
+        m_crc.reset();
+        m_crc.update(m_out, start + 4, dataLength + 4);
+        writeInt((int)m_crc.getValue());
+    }
+
+    private void writeInt(final int v) {
+        ensureCapacity(4);
+        m_out[m_length++] = (byte)(v >>> 24);
+        m_out[m_length++] = (byte)(v >>> 16);
+        m_out[m_length++] = (byte)(v >>> 8);
+        m_out[m_length++] = (byte)v;
+    }
+
+    private void writeByte(final int v) {
+        ensureCapacity(1);
+        m_out[m_length++] = (byte)v;
+    }
+
+    private void ensureCapacity(final int additional) {
+        if (m_length + additional > m_out.length) {
+            int length = Math.addExact(m_length, additional);
+            m_out = Arrays.copyOf(m_out, (m_out.length > Integer.MAX_VALUE / 2) ? length
+                : Math.max(2 * m_out.length, length));
+        }
+    }
+}
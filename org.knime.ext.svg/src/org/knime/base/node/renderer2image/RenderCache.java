@@ -0,0 +1,313 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataTypeRegistry;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Persistent cache for rendered images in a local directory. Entries are addressed by a SHA-256 hash over the
+ * serialized input cell (the XML for SVG cells) and the settings that influence the result, i.e. the renderer and the
+ * output type and size, so that repeated executions only render new or changed values. The total size of the
+ * directory is bounded; least recently used entries are deleted first, where the last use is tracked in the files'
+ * modification time.
+ *
+ * <p>
+ * The directory is only read when the cache is accessed for the first time. A single instance serves all columns and
+ * image types of an execution. Entries are written atomically, therefore several nodes may share the same directory.
+ * Cells without a registered serializer are never cached.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RenderCache {
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(RenderCache.class);
+
+    /** Increased whenever the key computation or the content of entries changes. */
+    private static final int VERSION = 2;
+
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path m_directory;
+
+    private final long m_maxBytes;
+
+    /** Entry names with their sizes in access order, <code>null</code> until the directory has been read. */
+    private Map<String, Long> m_entries;
+
+    private long m_totalBytes;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param directory the cache directory, it is created if it does not exist
+     * @param maxBytes the maximum total size of all entries
+     */
+    RenderCache(final Path directory, final long maxBytes) {
+        m_directory = directory;
+        m_maxBytes = maxBytes;
+    }
+
+    /**
+     * Computes the key of the passed cell.
+     *
+     * @param cell a non-missing cell
+     * @param settings a description of all settings that influence the rendered image
+     * @return the key or <code>null</code> if the cell cannot be serialized
+     */
+    String key(final DataCell cell, final String settings) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available: " + ex.getMessage(), ex);
+        }
+        try (DigestOutput out = new DigestOutput(digest)) {
+            out.writeInt(VERSION);
+            // not written with writeUTF, which is limited to 64KB
+            byte[] settingsBytes = settings.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(settingsBytes.length);
+            out.write(settingsBytes);
+            out.writeDataCell(cell);
+        } catch (IOException ex) {
+            LOGGER.debug("Could not compute cache key for cell of type " + cell.getClass().getName() + ": "
+                + ex.getMessage(), ex);
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >>> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached image for the given key.
+     *
+     * @param key a key computed by {@link #key(DataCell, String)}
+     * @return the image's bytes or <code>null</code> if it is not in the cache
+     */
+    byte[] get(final String key) {
+        synchronized (this) {
+            // get instead of containsKey, which would not mark the entry as recently used
+            if (getEntries().get(key) == null) {
+                return null;
+            }
+        }
+        Path file = m_directory.resolve(key);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return data;
+        } catch (NoSuchFileException ex) {
+            // deleted by another node sharing the directory
+            remove(key);
+            return null;
+        } catch (IOException ex) {
+            LOGGER.debug("Could not read cached image " + file + ": " + ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Puts an image into the cache. Least recently used entries are deleted if the cache becomes too large.
+     *
+     * @param key a key computed by {@link #key(DataCell, String)}
+     * @param data the image's bytes
+     */
+    void put(final String key, final byte[] data) {
+        if (data.length > m_maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (getEntries().get(key) != null) {
+                return;
+            }
+        }
+
+        Path file = m_directory.resolve(key);
+        try {
+            Path temp = Files.createTempFile(m_directory, key, ".tmp");
+            try {
+                Files.write(temp, data);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            LOGGER.debug("Could not write cached image " + file + ": " + ex.getMessage(), ex);
+            return;
+        }
+
+        synchronized (this) {
+            Long old = getEntries().put(key, (long)data.length);
+            if (old != null) {
+                m_totalBytes -= old;
+            }
+            m_totalBytes += data.length;
+            evict();
+        }
+    }
+
+    private synchronized void remove(final String key) {
+        Long old = getEntries().remove(key);
+        if (old != null) {
+            m_totalBytes -= old;
+        }
+    }
+
+    private void evict() {
+        for (Iterator<Map.Entry<String, Long>> it = m_entries.entrySet().iterator();
+                (m_totalBytes > m_maxBytes) && it.hasNext();) {
+            Map.Entry<String, Long> e = it.next();
+            it.remove();
+            m_totalBytes -= e.getValue();
+            try {
+                Files.deleteIfExists(m_directory.resolve(e.getKey()));
+            } catch (IOException ex) {
+                LOGGER.debug("Could not delete cached image " + e.getKey() + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /** Reads the existing entries, least recently used first, when the cache is accessed for the first time. */
+    private Map<String, Long> getEntries() {
+        if (m_entries == null) {
+            m_entries = new LinkedHashMap<>(16, 0.75f, true);
+            m_totalBytes = 0;
+            try {
+                Files.createDirectories(m_directory);
+                try (Stream<Path> files = Files.list(m_directory)) {
+                    files.filter(f -> ENTRY_NAME.matcher(f.getFileName().toString()).matches())
+                        .map(RenderCache::readAttributes).filter(Objects::nonNull)
+                        .sorted(Comparator.comparingLong(a -> a.m_lastModified)).forEach(a -> {
+                            m_entries.put(a.m_name, a.m_size);
+                            m_totalBytes += a.m_size;
+                        });
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("Could not read render cache directory " + m_directory + ": " + ex.getMessage(), ex);
+            }
+            evict();
+        }
+        return m_entries;
+    }
+
+    private static EntryAttributes readAttributes(final Path file) {
+        try {
+            return new EntryAttributes(file.getFileName().toString(), Files.size(file),
+                Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException ex) {
+            // deleted in the meantime
+            return null;
+        }
+    }
+
+    private static final class EntryAttributes {
+        private final String m_name;
+
+        private final long m_size;
+
+        private final long m_lastModified;
+
+        EntryAttributes(final String name, final long size, final long lastModified) {
+            m_name = name;
+            m_size = size;
+            m_lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Output that feeds serialized cells into a message digest.
+     */
+    private static final class DigestOutput extends DataOutputStream implements DataCellDataOutput {
+        DigestOutput(final MessageDigest digest) {
+            super(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        }
+
+        @Override
+        public void writeDataCell(final DataCell cell) throws IOException {
+            if (cell instanceof SvgValue) {
+                // the serialized form of SVG cells depends on what has been computed for them already
+                writeUTF(SvgValue.class.getName());
+                SvgCellFactory.writeXml((SvgValue)cell, this);
+                return;
+            }
+            Optional<DataCellSerializer<DataCell>> serializer =
+                DataTypeRegistry.getInstance().getSerializer(cell.getClass());
+            if (!serializer.isPresent()) {
+                throw new IOException("No serializer available");
+            }
+            writeUTF(cell.getClass().getName());
+            serializer.get().serialize(cell, this);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.image.png.PNGImageValue;
+
+/**
+ * Memory bounded memo of the cells rendered during one execution, so that values that occur many times in a column,
+ * e.g. category icons, are only rendered once. Input cells are compared by {@link DataCell#equals(Object)}. The memo
+ * is bounded by the approximate size of the input and rendered cells; least recently used cells are dropped first.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RenderMemo {
+    private final long m_maxBytes;
+
+    private final Map<DataCell, DataCell> m_cells = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<DataCell, Long> m_sizes = new LinkedHashMap<>();
+
+    private long m_totalBytes;
+
+    /**
+     * Creates a new memo.
+     *
+     * @param maxBytes the maximum approximate size of all input and rendered cells
+     */
+    RenderMemo(final long maxBytes) {
+        m_maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cell that has been rendered for an equal input cell.
+     *
+     * @param input a non-missing input cell
+     * @return the rendered cell or <code>null</code> if no equal cell has been rendered yet
+     */
+    synchronized DataCell get(final DataCell input) {
+        return m_cells.get(input);
+    }
+
+    /**
+     * Remembers the rendered cell for an input cell. Least recently used cells are dropped if the memo becomes too
+     * large.
+     *
+     * @param input a non-missing input cell
+     * @param output the rendered cell
+     */
+    synchronized void put(final DataCell input, final DataCell output) {
+        long size = getSize(input) + getSize(output);
+        if (size > m_maxBytes) {
+            return;
+        }
+        m_cells.put(input, output);
+        Long old = m_sizes.put(input, size);
+        m_totalBytes += size - ((old != null) ? old : 0);
+
+        for (Iterator<DataCell> it = m_cells.keySet().iterator(); (m_totalBytes > m_maxBytes) && it.hasNext();) {
+            m_totalBytes -= m_sizes.remove(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Approximates the memory used by a cell by the size of its PNG data, its serialized SVG document or its string.
+     * The string of SVG cells is not created for this, it may not exist.
+     */
+    private static long getSize(final DataCell cell) {
+        if (cell instanceof PNGImageValue) {
+            return ((PNGImageValue)cell).getImageContent().getByteArrayReference().length;
+        }
+        if (cell instanceof SvgValue) {
+            long size = SvgCellFactory.getXmlSize((SvgValue)cell);
+            if (size >= 0) {
+                return size;
+            }
+        }
+        if (cell instanceof StringValue) {
+            return 2L * ((StringValue)cell).getStringValue().length();
+        }
+        return 0;
+    }
+}
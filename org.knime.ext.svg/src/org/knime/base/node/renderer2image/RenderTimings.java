@@ -0,0 +1,175 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.util.Arrays;
+
+import org.knime.core.data.RowKey;
+
+/**
+ * Collects the render and encode times of all rows of an execution and summarizes them as percentiles, so that
+ * rendering hot spots and pathological values can be found. All methods are thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RenderTimings {
+    /**
+     * Times of a single row, accumulated over all images created for the row.
+     */
+    static final class Row {
+        private long m_renderNanos;
+
+        private long m_encodeNanos;
+
+        /**
+         * Adds the time for painting or generating an image.
+         *
+         * @param nanos the time in nanoseconds
+         */
+        void addRender(final long nanos) {
+            m_renderNanos += nanos;
+        }
+
+        /**
+         * Adds the time for encoding an image and creating its cell.
+         *
+         * @param nanos the time in nanoseconds
+         */
+        void addEncode(final long nanos) {
+            m_encodeNanos += nanos;
+        }
+
+        /**
+         * Returns the total time of the row.
+         *
+         * @return the time in nanoseconds
+         */
+        long getTotalNanos() {
+            return m_renderNanos + m_encodeNanos;
+        }
+    }
+
+    private long[] m_render = new long[1024];
+
+    private long[] m_encode = new long[1024];
+
+    private int m_count;
+
+    private RowKey m_slowestRow;
+
+    private long m_slowestNanos = -1;
+
+    /**
+     * Records the times of a row.
+     *
+     * @param key the row's key
+     * @param row the row's times
+     */
+    synchronized void add(final RowKey key, final Row row) {
+        if (m_count == m_render.length) {
+            m_render = Arrays.copyOf(m_render, 2 * m_count);
+            m_encode = Arrays.copyOf(m_encode, 2 * m_count);
+        }
+        m_render[m_count] = row.m_renderNanos;
+        m_encode[m_count] = row.m_encodeNanos;
+        m_count++;
+        if (row.getTotalNanos() > m_slowestNanos) {
+            m_slowestNanos = row.getTotalNanos();
+            m_slowestRow = key;
+        }
+    }
+
+    /**
+     * Returns the number of recorded rows.
+     *
+     * @return the number of rows
+     */
+    synchronized int getCount() {
+        return m_count;
+    }
+
+    /**
+     * Returns percentiles of the render times.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     * @return the render times at the percentiles in milliseconds, 0 if no rows have been recorded
+     */
+    synchronized double[] getRenderMillis(final double... percentiles) {
+        return getMillis(m_render, percentiles);
+    }
+
+    /**
+     * Returns percentiles of the encode times.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     * @return the encode times at the percentiles in milliseconds, 0 if no rows have been recorded
+     */
+    synchronized double[] getEncodeMillis(final double... percentiles) {
+        return getMillis(m_encode, percentiles);
+    }
+
+    /**
+     * Returns the key of the row with the highest total time.
+     *
+     * @return the row's key or <code>null</code> if no rows have been recorded
+     */
+    synchronized RowKey getSlowestRow() {
+        return m_slowestRow;
+    }
+
+    private double[] getMillis(final long[] nanos, final double[] percentiles) {
+        long[] sorted = Arrays.copyOf(nanos, m_count);
+        Arrays.sort(sorted);
+        double[] millis = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (m_count > 0) {
+                // nearest rank, so that the 100th percentile is the maximum
+                int rank = (int)Math.ceil(percentiles[i] / 100 * m_count);
+                millis[i] = sorted[Math.max(0, Math.min(m_count, rank) - 1)] / 1e6;
+            }
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.batik.util.HaltingThread;
+import org.knime.core.data.RowKey;
+
+/**
+ * Runs the rendering of rows with a time budget. Rows are rendered by {@link HaltingThread}s, which are halted if the
+ * budget is exceeded. Batik checks the halted state while building and painting GVT trees and aborts rendering, other
+ * renderers continue in the background until they are finished. Tasks must therefore release the resources they use
+ * themselves and must not publish their results if {@link #isHalted()} returns <code>true</code>. The number of halted
+ * tasks that are still running is limited, further rows wait for one of them to finish and exceed their budget if
+ * none finishes in time. Therefore there are never more threads than calling threads plus this limit. All methods are
+ * thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RenderWatchdog {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final long m_budgetMillis;
+
+    private final int m_maxHaltedTasks;
+
+    private ExecutorService m_executor;
+
+    private int m_haltedTasks;
+
+    private int m_exceededCount;
+
+    private RowKey m_firstExceededRow;
+
+    /**
+     * Creates a new watchdog.
+     *
+     * @param budgetMillis the maximum time for rendering a row in milliseconds
+     * @param maxHaltedTasks the maximum number of halted tasks that may still be running in the background
+     */
+    RenderWatchdog(final long budgetMillis, final int maxHaltedTasks) {
+        m_budgetMillis = budgetMillis;
+        m_maxHaltedTasks = maxHaltedTasks;
+    }
+
+    /**
+     * Returns the maximum time for rendering a row.
+     *
+     * @return the time in milliseconds
+     */
+    long getBudgetMillis() {
+        return m_budgetMillis;
+    }
+
+    /**
+     * Renders a row on a separate thread and waits at most for the time budget.
+     *
+     * @param key the row's key
+     * @param task the task that renders the row
+     * @return the task's result
+     * @throws TimeoutException if the task has not finished within the time budget, it has been halted then, or if
+     *             it has not been started because too many halted tasks are still running
+     * @throws InterruptedException if the calling thread has been interrupted while waiting, the task has been halted
+     *             then
+     */
+    <T> T call(final RowKey key, final Callable<T> task) throws TimeoutException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(m_budgetMillis);
+        awaitHaltedTasks(key, deadline);
+        HaltableTask<T> haltable = new HaltableTask<>(task);
+        Future<T> future = getExecutor().submit(haltable);
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            haltable.halt();
+            future.cancel(true);
+            exceeded(key);
+            throw ex;
+        } catch (InterruptedException ex) {
+            haltable.halt();
+            future.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ex.getCause();
+            } else if (ex.getCause() instanceof Error) {
+                throw (Error)ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * Waits until fewer than the maximum number of halted tasks are still running.
+     */
+    private synchronized void awaitHaltedTasks(final RowKey key, final long deadline)
+        throws TimeoutException, InterruptedException {
+        while (m_haltedTasks >= m_maxHaltedTasks) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                exceeded(key);
+                throw new TimeoutException(m_haltedTasks + " halted renderers are still running");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    private synchronized void exceeded(final RowKey key) {
+        if (m_exceededCount++ == 0) {
+            m_firstExceededRow = key;
+        }
+    }
+
+    private synchronized void haltedTaskStarted() {
+        m_haltedTasks++;
+    }
+
+    private synchronized void haltedTaskFinished() {
+        m_haltedTasks--;
+        notifyAll();
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (m_executor == null) {
+            m_executor = Executors.newCachedThreadPool(r -> {
+                HaltingThread thread = new HaltingThread(r, "KNIME-Render-Watchdog-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return m_executor;
+    }
+
+    /**
+     * Returns the number of rows that have exceeded the time budget.
+     *
+     * @return the number of rows
+     */
+    synchronized int getExceededCount() {
+        return m_exceededCount;
+    }
+
+    /**
+     * Returns the key of the first row that has exceeded the time budget.
+     *
+     * @return the row's key or <code>null</code> if no row has exceeded the budget
+     */
+    synchronized RowKey getFirstExceededRow() {
+        return m_firstExceededRow;
+    }
+
+    /**
+     * Stops the threads once they have finished their current tasks.
+     */
+    synchronized void shutdown() {
+        if (m_executor != null) {
+            m_executor.shutdown();
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Returns whether the current thread renders a row that has exceeded its time budget.
+     *
+     * @return <code>true</code> if rendering has been halted, <code>false</code> otherwise
+     */
+    static boolean isHalted() {
+        return HaltingThread.hasBeenHalted();
+    }
+
+    /**
+     * Task that remembers the thread it runs on, so that only this thread is halted and only while it runs the task.
+     * Threads are reused for later tasks after they have been halted.
+     */
+    private final class HaltableTask<T> implements Callable<T> {
+        private final Callable<T> m_task;
+
+        private HaltingThread m_thread;
+
+        private boolean m_done;
+
+        private boolean m_halted;
+
+        HaltableTask(final Callable<T> task) {
+            m_task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            synchronized (this) {
+                if (m_halted) {
+                    // halted before it has been started, its result is not used anymore
+                    return null;
+                }
+                m_thread = (HaltingThread)Thread.currentThread();
+            }
+            try {
+                return m_task.call();
+            } finally {
+                synchronized (this) {
+                    m_done = true;
+                    m_thread.clearHalted();
+                    if (m_halted) {
+                        haltedTaskFinished();
+                    }
+                }
+            }
+        }
+
+        synchronized void halt() {
+            if (m_done || m_halted) {
+                return;
+            }
+            m_halted = true;
+            if (m_thread != null) {
+                // keeps running until it checks the halted state or finishes
+                m_thread.halt();
+                haltedTaskStarted();
+            }
+        }
+    }
+}
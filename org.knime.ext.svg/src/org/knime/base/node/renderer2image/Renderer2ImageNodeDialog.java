@@ -53,15 +53,23 @@
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import javax.swing.ButtonGroup;
 import javax.swing.DefaultComboBoxModel;
+import javax.swing.DefaultListModel;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
@@ -99,6 +107,12 @@ public class Renderer2ImageNodeDialog extends NodeDialogPane {
 
     private final JComboBox<ImageType> m_imageTypes = new JComboBox<>();
 
+    private final JCheckBox m_bothImageTypes = new JCheckBox("Create both SVG and PNG images");
+
+    private final DefaultListModel<String> m_additionalColumnsModel = new DefaultListModel<>();
+
+    private final JList<String> m_additionalColumns = new JList<>(m_additionalColumnsModel);
+
     private final JLabel m_pngSize = new JLabel("Image size   ");
 
     private final JSpinner m_pngWidth = new JSpinner(new SpinnerNumberModel(100, 1, 100000, 1));
@@ -107,12 +121,53 @@ public class Renderer2ImageNodeDialog extends NodeDialogPane {
 
     private final JSpinner m_pngHeight = new JSpinner(new SpinnerNumberModel(100, 1, 100000, 1));
 
+    private final JLabel m_pngCompressionLevelLabel = new JLabel("PNG compression   ");
+
+    private final JSpinner m_pngCompressionLevel = new JSpinner(new SpinnerNumberModel(
+        Renderer2ImageSettings.DEFAULT_PNG_COMPRESSION_LEVEL, 0, 9, 1));
+
+    private final JLabel m_pngQualityLabel = new JLabel("PNG quality   ");
+
+    private final JSpinner m_pngQuality = new JSpinner(new SpinnerNumberModel(100, 0, 100, 1));
+
+    private final JLabel m_pngScaleLabel = new JLabel("Device scale   ");
+
+    private final JSpinner m_pngScale = new JSpinner(new SpinnerNumberModel(1.0, 0.25, 8.0, 0.25));
+
+    private final JLabel m_pngSupersamplingLabel = new JLabel("Supersampling   ");
+
+    private final JSpinner m_pngSupersampling = new JSpinner(new SpinnerNumberModel(1, 1, 4, 1));
+
     private final JTextField m_newColumnName = new JTextField(10);
 
     private final JRadioButton m_replaceColumn = new JRadioButton("Replace input column");
 
     private final JRadioButton m_appendColumn = new JRadioButton("Append column");
 
+    private final JCheckBox m_parallelExecution = new JCheckBox("Render values in parallel");
+
+    private final JCheckBox m_renderCache = new JCheckBox("Cache images in   ");
+
+    private final JTextField m_renderCacheDirectory = new JTextField(10);
+
+    private final JLabel m_renderCacheSizeLabel = new JLabel("Cache size (MB)   ");
+
+    private final JSpinner m_renderCacheSize = new JSpinner(new SpinnerNumberModel(
+        Renderer2ImageSettings.DEFAULT_RENDER_CACHE_SIZE, 1, Integer.MAX_VALUE, 64));
+
+    private final JCheckBox m_measureRenderTimes = new JCheckBox("Measure render times");
+
+    private final JCheckBox m_appendRenderTimeColumn = new JCheckBox("Append column with render times");
+
+    private final JCheckBox m_renderDuplicatesOnce = new JCheckBox("Render duplicate values only once");
+
+    private final JLabel m_duplicateMemoSizeLabel = new JLabel("Memory (MB)   ");
+
+    private final JSpinner m_duplicateMemoSize = new JSpinner(new SpinnerNumberModel(
+        Renderer2ImageSettings.DEFAULT_DUPLICATE_MEMO_SIZE, 1, Integer.MAX_VALUE, 16));
+
+    private final JSpinner m_renderTimeBudget = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1000));
+
 
     Renderer2ImageNodeDialog() {
         JPanel p = new JPanel(new GridBagLayout());
@@ -129,6 +184,20 @@ public class Renderer2ImageNodeDialog extends NodeDialogPane {
         c.weightx = 1;
         p.add(m_column, c);
 
+        c.gridx = 0;
+        c.gridwidth = 1;
+        c.gridy++;
+        c.weightx = 0;
+        c.anchor = GridBagConstraints.NORTHWEST;
+        p.add(new JLabel("Further columns   "), c);
+        c.gridx = 1;
+        c.gridwidth = 3;
+        c.weightx = 1;
+        m_additionalColumns.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        m_additionalColumns.setVisibleRowCount(4);
+        p.add(new JScrollPane(m_additionalColumns), c);
+        c.anchor = GridBagConstraints.WEST;
+
         c.gridx = 0;
         c.gridwidth = 1;
         c.gridy++;
@@ -152,6 +221,16 @@ public class Renderer2ImageNodeDialog extends NodeDialogPane {
             m_imageTypes.addItem(t);
         }
 
+        c.gridx = 1;
+        c.gridy++;
+        p.add(m_bothImageTypes, c);
+        m_bothImageTypes.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                imageTypeChanged();
+            }
+        });
+
         c.gridx = 0;
         c.gridwidth = 1;
         c.gridy++;
@@ -166,6 +245,30 @@ public class Renderer2ImageNodeDialog extends NodeDialogPane {
         c.gridx = 3;
         p.add(m_pngHeight, c);
 
+        c.gridx = 0;
+        c.gridy++;
+        p.add(m_pngCompressionLevelLabel, c);
+        c.gridx = 1;
+        p.add(m_pngCompressionLevel, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        p.add(m_pngQualityLabel, c);
+        c.gridx = 1;
+        p.add(m_pngQuality, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        p.add(m_pngScaleLabel, c);
+        c.gridx = 1;
+        p.add(m_pngScale, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        p.add(m_pngSupersamplingLabel, c);
+        c.gridx = 1;
+        p.add(m_pngSupersampling, c);
+
         m_column.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(final ActionEvent e) {
@@ -204,6 +307,78 @@ public void actionPerformed(final ActionEvent e) {
         c.weightx = 0;
         p.add(m_replaceColumn, c);
 
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 4;
+        p.add(m_parallelExecution, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 1;
+        p.add(m_renderCache, c);
+        c.gridx = 1;
+        c.gridwidth = 3;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        p.add(m_renderCacheDirectory, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 1;
+        c.fill = GridBagConstraints.NONE;
+        c.weightx = 0;
+        p.add(m_renderCacheSizeLabel, c);
+        c.gridx = 1;
+        p.add(m_renderCacheSize, c);
+
+        m_renderCache.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                renderCacheChanged();
+            }
+        });
+
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 4;
+        p.add(m_renderDuplicatesOnce, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 1;
+        p.add(m_duplicateMemoSizeLabel, c);
+        c.gridx = 1;
+        p.add(m_duplicateMemoSize, c);
+
+        m_renderDuplicatesOnce.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                m_duplicateMemoSizeLabel.setEnabled(m_renderDuplicatesOnce.isSelected());
+                m_duplicateMemoSize.setEnabled(m_renderDuplicatesOnce.isSelected());
+            }
+        });
+
+        c.gridx = 0;
+        c.gridy++;
+        p.add(new JLabel("Time budget per row (ms)   "), c);
+        c.gridx = 1;
+        p.add(m_renderTimeBudget, c);
+
+        c.gridx = 0;
+        c.gridy++;
+        c.gridwidth = 4;
+        p.add(m_measureRenderTimes, c);
+
+        c.gridy++;
+        p.add(m_appendRenderTimeColumn, c);
+
+        m_measureRenderTimes.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                m_appendRenderTimeColumn.setEnabled(m_measureRenderTimes.isSelected());
+            }
+        });
+
         ButtonGroup bg = new ButtonGroup();
         bg.add(m_appendColumn);
         bg.add(m_replaceColumn);
@@ -218,12 +393,27 @@ public void stateChanged(final ChangeEvent e) {
     }
 
 
+    void renderCacheChanged() {
+        boolean enabled = m_renderCache.isSelected();
+        m_renderCacheDirectory.setEnabled(enabled);
+        m_renderCacheSizeLabel.setEnabled(enabled);
+        m_renderCacheSize.setEnabled(enabled);
+    }
+
     void imageTypeChanged() {
-        boolean isPng = ImageType.Png.equals(m_imageTypes.getSelectedItem());
+        boolean isPng = ImageType.Png.equals(m_imageTypes.getSelectedItem()) || m_bothImageTypes.isSelected();
         m_pngSize.setEnabled(isPng);
         m_pngWidth.setEnabled(isPng);
         m_x.setEnabled(isPng);
         m_pngHeight.setEnabled(isPng);
+        m_pngCompressionLevelLabel.setEnabled(isPng);
+        m_pngCompressionLevel.setEnabled(isPng);
+        m_pngQualityLabel.setEnabled(isPng);
+        m_pngQuality.setEnabled(isPng);
+        m_pngScaleLabel.setEnabled(isPng);
+        m_pngScale.setEnabled(isPng);
+        m_pngSupersamplingLabel.setEnabled(isPng);
+        m_pngSupersampling.setEnabled(isPng);
     }
 
     /**
@@ -235,13 +425,25 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
         m_settings.loadSettingsForDialog(settings);
 
         m_column.update(specs[0], m_settings.columnName());
+        m_additionalColumnsModel.removeAllElements();
+        for (DataColumnSpec cs : specs[0]) {
+            m_additionalColumnsModel.addElement(cs.getName());
+        }
+        List<String> additionalColumns = Arrays.asList(m_settings.additionalColumnNames());
+        m_additionalColumns.setSelectedIndices(IntStream.range(0, m_additionalColumnsModel.size())
+            .filter(i -> additionalColumns.contains(m_additionalColumnsModel.get(i))).toArray());
         Object defRenderer = m_rendererDescriptions.getModel().getSelectedItem(); // first item
         m_rendererDescriptions.setSelectedItem(ObjectUtils.defaultIfNull(m_settings.rendererDescription(), defRenderer));
         m_imageTypes.setSelectedItem(m_settings.imageType());
+        m_bothImageTypes.setSelected(m_settings.additionalImageTypes().length > 0);
         imageTypeChanged();
 
         m_pngWidth.setValue(m_settings.pngSize().width);
         m_pngHeight.setValue(m_settings.pngSize().height);
+        m_pngCompressionLevel.setValue(m_settings.pngCompressionLevel());
+        m_pngQuality.setValue(m_settings.pngQuality());
+        m_pngScale.setValue(m_settings.pngScale());
+        m_pngSupersampling.setValue(m_settings.pngSupersampling());
 
         m_replaceColumn.setSelected(m_settings.replaceColumn());
         m_appendColumn.setSelected(!m_settings.replaceColumn());
@@ -253,6 +455,19 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
                     + m_rendererDescriptions.getSelectedItem().toString();
             m_newColumnName.setText(colName);
         }
+        m_parallelExecution.setSelected(m_settings.parallelExecution());
+        m_renderCache.setSelected(m_settings.renderCache());
+        m_renderCacheDirectory.setText(ObjectUtils.defaultIfNull(m_settings.renderCacheDirectory(), ""));
+        m_renderCacheSize.setValue(m_settings.renderCacheSize());
+        renderCacheChanged();
+        m_renderDuplicatesOnce.setSelected(m_settings.renderDuplicatesOnce());
+        m_duplicateMemoSize.setValue(m_settings.duplicateMemoSize());
+        m_duplicateMemoSizeLabel.setEnabled(m_settings.renderDuplicatesOnce());
+        m_duplicateMemoSize.setEnabled(m_settings.renderDuplicatesOnce());
+        m_measureRenderTimes.setSelected(m_settings.measureRenderTimes());
+        m_appendRenderTimeColumn.setSelected(m_settings.appendRenderTimeColumn());
+        m_appendRenderTimeColumn.setEnabled(m_settings.measureRenderTimes());
+        m_renderTimeBudget.setValue(m_settings.renderTimeBudget());
     }
 
     /**
@@ -266,13 +481,33 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
         }
         m_settings.rendererDescription(m_rendererDescriptions.getSelectedItem().toString());
         m_settings.imageType((ImageType)m_imageTypes.getSelectedItem());
+        m_settings.additionalImageTypes(m_bothImageTypes.isSelected() ? Arrays.stream(ImageType.values())
+            .filter(t -> t != m_settings.imageType()).toArray(ImageType[]::new) : new ImageType[0]);
+        m_settings.additionalColumnNames(m_additionalColumns.getSelectedValuesList().stream()
+            .filter(n -> !n.equals(m_settings.columnName())).toArray(String[]::new));
         m_settings.pngSize(new Dimension((Integer) m_pngWidth.getValue(), (Integer) m_pngHeight.getValue()));
+        m_settings.pngCompressionLevel((Integer)m_pngCompressionLevel.getValue());
+        m_settings.pngQuality((Integer)m_pngQuality.getValue());
+        m_settings.pngScale(((Number)m_pngScale.getValue()).doubleValue());
+        m_settings.pngSupersampling((Integer)m_pngSupersampling.getValue());
         m_settings.replaceColumn(m_replaceColumn.isSelected());
         if (m_settings.replaceColumn()) {
             m_settings.newColumnName(null);
         } else {
             m_settings.newColumnName(m_newColumnName.getText());
         }
+        m_settings.parallelExecution(m_parallelExecution.isSelected());
+        m_settings.renderCache(m_renderCache.isSelected());
+        m_settings.renderCacheDirectory(m_renderCacheDirectory.getText().trim());
+        m_settings.renderCacheSize((Integer)m_renderCacheSize.getValue());
+        m_settings.renderDuplicatesOnce(m_renderDuplicatesOnce.isSelected());
+        m_settings.duplicateMemoSize((Integer)m_duplicateMemoSize.getValue());
+        m_settings.measureRenderTimes(m_measureRenderTimes.isSelected());
+        m_settings.appendRenderTimeColumn(m_appendRenderTimeColumn.isSelected());
+        m_settings.renderTimeBudget((Integer)m_renderTimeBudget.getValue());
+        if (m_settings.renderCache() && m_settings.renderCacheDirectory().isEmpty()) {
+            throw new InvalidSettingsException("No render cache directory given");
+        }
 
         m_settings.saveSettings(settings);
     }
@@ -47,27 +47,40 @@
  */
 package org.knime.base.node.renderer2image;
 
-import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-
-import javax.imageio.ImageIO;
-
-import org.apache.batik.anim.dom.SVGDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.commons.lang3.concurrent.ConcurrentException;
-import org.apache.commons.lang3.concurrent.LazyInitializer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import javax.swing.JComponent;
+
+import org.apache.commons.lang3.ArrayUtils;
 import org.knime.base.data.xml.SvgBlobCell;
 import org.knime.base.data.xml.SvgCell;
 import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgCellFactory.Validation;
 import org.knime.base.data.xml.SvgProvider;
+import org.knime.base.data.xml.SvgValue;
 import org.knime.base.data.xml.SvgValueRenderer;
 import org.knime.base.node.renderer2image.Renderer2ImageSettings.ImageType;
 import org.knime.core.data.DataCell;
@@ -77,12 +90,16 @@
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataTableSpecCreator;
-import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
-import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.image.png.PNGImageBlobCell;
 import org.knime.core.data.image.png.PNGImageCell;
 import org.knime.core.data.image.png.PNGImageContent;
+import org.knime.core.data.image.png.PNGImageValue;
 import org.knime.core.data.renderer.DataValueRenderer;
 import org.knime.core.data.renderer.DataValueRendererFactory;
 import org.knime.core.data.util.LockedSupplier;
@@ -91,12 +108,18 @@
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
-import org.knime.core.util.Pointer;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.knime.core.node.streamable.StreamableOperatorInternals;
+import org.knime.core.util.UniqueNameGenerator;
 import org.w3c.dom.svg.SVGDocument;
 
 /**
@@ -107,6 +130,9 @@
 public class Renderer2ImageNodeModel extends NodeModel {
     private final Renderer2ImageSettings m_settings = new Renderer2ImageSettings();
 
+    /** The render times recorded by all partitions while streaming, <code>null</code> if they are not measured. */
+    private RenderTimings m_streamingTimings;
+
     /**
      * Creates a new node model with one input and one output port.
      */
@@ -160,6 +186,9 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
      */
     @Override
     protected void reset() {
+        synchronized (this) {
+            m_streamingTimings = null;
+        }
     }
 
     /**
@@ -168,15 +197,36 @@ protected void reset() {
     @Override
     protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
         throws Exception {
-        DataTableSpec inSpec = inData[0].getDataTableSpec();
-        DataColumnSpec cs = inSpec.getColumnSpec(m_settings.columnName());
-
-        MyColumnRearranger crea = createRearranger(inSpec, cs);
+        MyColumnRearranger crea = createRearranger(inData[0].getDataTableSpec(), createTimings());
         BufferedDataTable outTable = exec.createColumnRearrangeTable(inData[0], crea, exec);
         outTable = exec.createSpecReplacerTable(outTable, fixPropertiesInSpec(outTable.getSpec(), crea));
+        if (crea.getTimings() != null) {
+            pushTimings(crea.getTimings());
+        }
         return new BufferedDataTable[]{outTable};
     }
 
+    /**
+     * Provides the percentiles of the render and encode times as flow variables and logs them together with the
+     * slowest row.
+     */
+    private void pushTimings(final RenderTimings timings) {
+        double[] render = timings.getRenderMillis(50, 95, 99, 100);
+        double[] encode = timings.getEncodeMillis(50, 95, 99, 100);
+        String[] suffixes = {"P50", "P95", "P99", "Max"};
+        for (int i = 0; i < suffixes.length; i++) {
+            pushFlowVariableDouble("renderTime" + suffixes[i], render[i]);
+            pushFlowVariableDouble("encodeTime" + suffixes[i], encode[i]);
+        }
+        RowKey slowestRow = timings.getSlowestRow();
+        pushFlowVariableString("slowestRow", (slowestRow != null) ? slowestRow.getString() : "");
+        NodeLogger.getLogger(Renderer2ImageNodeModel.class).info(String.format(
+            "Render times of %d rows (p50/p95/p99/max): %.2f/%.2f/%.2f/%.2f ms, encode times: %.2f/%.2f/%.2f/%.2f ms,"
+                + " slowest row: %s",
+            timings.getCount(), render[0], render[1], render[2], render[3], encode[0], encode[1], encode[2],
+            encode[3], slowestRow));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -207,109 +257,315 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws Invali
             }
         }
 
-        return new DataTableSpec[]{createRearranger(inSpecs[0], cs).createSpec()};
+        return new DataTableSpec[]{createRearranger(inSpecs[0], null).createSpec()};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        return new InputPortRole[]{InputPortRole.DISTRIBUTED_STREAMABLE};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputPortRole[] getOutputPortRoles() {
+        return new OutputPortRole[]{OutputPortRole.DISTRIBUTED};
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * When streaming, the output spec must be known in advance, therefore the preferred size of the renderer is not
+     * added to the properties of new SVG columns. The render times of all partitions are recorded together and
+     * provided as flow variables when the streaming has finished.
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+        final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        RenderTimings timings;
+        synchronized (this) {
+            if (m_streamingTimings == null) {
+                m_streamingTimings = createTimings();
+            }
+            timings = m_streamingTimings;
+        }
+        return createRearranger((DataTableSpec)inSpecs[0], timings).createStreamableFunction();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Provides the render times that have been recorded while streaming as flow variables, as in
+     * {@link #execute(BufferedDataTable[], ExecutionContext)}.
+     */
+    @Override
+    public void finishStreamableExecution(final StreamableOperatorInternals internals, final ExecutionContext exec,
+        final PortOutput[] output) throws Exception {
+        RenderTimings timings;
+        synchronized (this) {
+            timings = m_streamingTimings;
+            m_streamingTimings = null;
+        }
+        if (timings != null) {
+            pushTimings(timings);
+        }
+    }
+
+    /**
+     * @return new, empty render times if they are measured, <code>null</code> otherwise
+     */
+    private RenderTimings createTimings() {
+        return m_settings.measureRenderTimes() ? new RenderTimings() : null;
     }
 
-    private MyColumnRearranger createRearranger(final DataTableSpec inSpec, final DataColumnSpec colSpec)
+    /**
+     * @param inSpec the spec of the input table
+     * @param timings the render times that are recorded, <code>null</code> if they are not measured
+     */
+    private MyColumnRearranger createRearranger(final DataTableSpec inSpec, final RenderTimings timings)
         throws InvalidSettingsException {
+        final List<String> columnNames = new ArrayList<>();
+        columnNames.add(m_settings.columnName());
+        for (String name : m_settings.additionalColumnNames()) {
+            if (!columnNames.contains(name)) {
+                columnNames.add(name);
+            }
+        }
+        final ImageType[] imageTypes = ArrayUtils.insert(0, m_settings.additionalImageTypes(), m_settings.imageType());
+
+        final UniqueNameGenerator nameGenerator = new UniqueNameGenerator(inSpec);
+        final List<RenderedColumn> columns = new ArrayList<>();
+        final List<DataColumnSpec> outSpecs = new ArrayList<>();
+        final Map<String, SvgColumnSize> svgColumns = new LinkedHashMap<>();
+        // one instance for all columns and image types, its keys contain the settings of each of them
+        final RenderCache renderCache = m_settings.renderCache() ? new RenderCache(
+            Paths.get(m_settings.renderCacheDirectory()), m_settings.renderCacheSize() * 1024L * 1024L) : null;
+        for (String columnName : columnNames) {
+            DataColumnSpec colSpec = inSpec.getColumnSpec(columnName);
+            if (colSpec == null) {
+                throw new InvalidSettingsException("Column '" + columnName + "' does not exist");
+            }
+            DataValueRendererFactory rendererFactory =
+                findRendererFactory(colSpec, columnName.equals(m_settings.columnName()));
+
+            // each worker thread borrows its own renderer, rows are still written in their original order
+            RendererPool rendererPool = new RendererPool(rendererFactory, colSpec);
+            RenderMemo[] memos = new RenderMemo[imageTypes.length];
+            String[] renderCacheSettings = new String[imageTypes.length];
+            SvgColumnSize[] svgSizes = new SvgColumnSize[imageTypes.length];
+            for (int i = 0; i < imageTypes.length; i++) {
+                String outName;
+                if (m_settings.replaceColumn() && (imageTypes.length == 1)) {
+                    outName = columnName;
+                } else if (columnName.equals(m_settings.columnName()) && !m_settings.replaceColumn()) {
+                    outName = m_settings.newColumnName();
+                } else {
+                    outName = columnName + " rendered with " + rendererFactory.getDescription();
+                }
+                if (imageTypes.length > 1) {
+                    outName += " (" + imageTypes[i].name().toUpperCase(Locale.ROOT) + ")";
+                }
+                if (!m_settings.replaceColumn() || (imageTypes.length > 1)) {
+                    outName = nameGenerator.newName(outName);
+                }
+
+                if (ImageType.Svg.equals(imageTypes[i])) {
+                    outSpecs.add(new DataColumnSpecCreator(outName, SvgCellFactory.TYPE).createSpec());
+                    svgSizes[i] = new SvgColumnSize(rendererPool);
+                    svgColumns.put(outName, svgSizes[i]);
+                } else if (ImageType.Png.equals(imageTypes[i])) {
+                    outSpecs.add(new DataColumnSpecCreator(outName, PNGImageContent.TYPE).createSpec());
+                } else {
+                    throw new InvalidSettingsException("Unsupported image type: " + imageTypes[i]);
+                }
+                memos[i] = m_settings.renderDuplicatesOnce()
+                    ? new RenderMemo(m_settings.duplicateMemoSize() * 1024L * 1024L) : null;
+                renderCacheSettings[i] = (renderCache == null) ? null
+                    : createRenderCacheSettings(colSpec, rendererFactory.getDescription(), imageTypes[i]);
+            }
+            columns.add(new RenderedColumn(inSpec.findColumnIndex(columnName), rendererPool, memos, renderCache,
+                renderCacheSettings, svgSizes));
+        }
 
+        final boolean timingColumn = m_settings.measureRenderTimes() && m_settings.appendRenderTimeColumn();
+        if (timingColumn) {
+            outSpecs.add(
+                new DataColumnSpecCreator(nameGenerator.newName("Render time (ms)"), DoubleCell.TYPE).createSpec());
+        }
+
+        // renderers that cannot be halted keep running in the background, at most one per processor
+        final RenderWatchdog watchdog = (m_settings.renderTimeBudget() > 0)
+            ? new RenderWatchdog(m_settings.renderTimeBudget(), Runtime.getRuntime().availableProcessors()) : null;
+        RendererCellFactory cf =
+            new RendererCellFactory(columns, imageTypes, outSpecs, timings, timingColumn, watchdog);
+        MyColumnRearranger crea = new MyColumnRearranger(inSpec, svgColumns, timings);
+        String[] replaced = columnNames.toArray(new String[0]);
+        if (!m_settings.replaceColumn()) {
+            crea.append(cf);
+        } else if (outSpecs.size() == replaced.length) {
+            crea.replace(cf, replaced);
+        } else {
+            // more new columns than replaced ones: the first image of each column takes the position of the replaced
+            // column, the images of the additional types and the timing column are appended; the columns are moved
+            // in the order of their original position, so that the preceding columns are already in place
+            final TreeMap<Integer, String> firstImageColumns = new TreeMap<>();
+            for (int c = 0; c < columnNames.size(); c++) {
+                firstImageColumns.put(inSpec.findColumnIndex(columnNames.get(c)),
+                    outSpecs.get(c * imageTypes.length).getName());
+            }
+            crea.remove(replaced);
+            crea.append(cf);
+            for (Map.Entry<Integer, String> e : firstImageColumns.entrySet()) {
+                crea.move(e.getValue(), e.getKey());
+            }
+        }
+
+        return crea;
+    }
+
+    /**
+     * Finds the factory for the selected renderer. Further columns whose type does not provide the selected renderer
+     * use their preferred renderer.
+     */
+    private DataValueRendererFactory findRendererFactory(final DataColumnSpec colSpec, final boolean selectedColumn)
+        throws InvalidSettingsException {
         final var type = colSpec.getType();
-        final var columnName = m_settings.columnName();
         Collection<DataValueRendererFactory> rendererFactories = type.getRendererFactories();
-
-        final Pointer<DataValueRendererFactory> activeRendererPointer = new Pointer<>();
         for (DataValueRendererFactory f: rendererFactories) {
             if (f.getDescription().equals(m_settings.rendererDescription())) {
-                activeRendererPointer.set(f);
-                break;
+                return f;
             }
         }
-        if (activeRendererPointer.get() == null) {
-            // changed as part of AP-20660 and AP-18025: the description of some default renderer were changed,
-            // e.g. "Default" -> "Image". Fallback to the default renderer.
-            if ("Default".equals(m_settings.rendererDescription())) {
-                activeRendererPointer.set(rendererFactories.stream().findFirst()
-                    .orElseThrow(() -> new InvalidSettingsException(
-                        String.format("Column %s of type %s has no renderers registered", columnName, type))));
-            } else {
-                throw new InvalidSettingsException("Renderer '" + m_settings.rendererDescription()
-                    + "' does not exist for column '" + columnName + "'");
-            }
+        // changed as part of AP-20660 and AP-18025: the description of some default renderer were changed,
+        // e.g. "Default" -> "Image". Fallback to the default renderer.
+        if (!selectedColumn || "Default".equals(m_settings.rendererDescription())) {
+            return rendererFactories.stream().findFirst()
+                .orElseThrow(() -> new InvalidSettingsException(
+                    String.format("Column %s of type %s has no renderers registered", colSpec.getName(), type)));
+        } else {
+            throw new InvalidSettingsException("Renderer '" + m_settings.rendererDescription()
+                + "' does not exist for column '" + colSpec.getName() + "'");
         }
+    }
 
+    /**
+     * Creates the description of all settings that influence the images rendered for a column, including the column
+     * properties that renderers may evaluate. It is part of the keys in the persistent render cache.
+     */
+    private String createRenderCacheSettings(final DataColumnSpec colSpec, final String rendererDescription,
+        final ImageType imageType) {
+        StringBuilder settings = new StringBuilder();
+        settings.append(rendererDescription).append('\n').append(imageType);
+        if (ImageType.Png.equals(imageType)) {
+            settings.append('\n').append(m_settings.pngSize().width).append('x').append(m_settings.pngSize().height)
+                .append('\n').append(m_settings.pngCompressionLevel()).append('\n').append(m_settings.pngQuality())
+                .append('\n').append(m_settings.pngScale()).append('\n').append(m_settings.pngSupersampling());
+        }
+        DataColumnProperties props = colSpec.getProperties();
+        for (String key : new TreeSet<>(Collections.list(props.properties()))) {
+            settings.append('\n').append(key).append('=').append(props.getProperty(key));
+        }
+        return settings.toString();
+    }
 
-        String colName = m_settings.replaceColumn() ? columnName
-            : DataTableSpec.getUniqueColumnName(inSpec, m_settings.newColumnName());
-
-        final LazyInitializer<DataValueRenderer> rendererInitializer = new LazyInitializer<DataValueRenderer>() {
-            @Override
-            protected DataValueRenderer initialize() {
-                return activeRendererPointer.get().createRenderer(colSpec);
+    /**
+     * Takes the rendered cell from the memo of this execution or the render cache, or renders it and puts it into
+     * both.
+     *
+     * @param cell the input cell
+     * @param memo the memo of rendered cells, <code>null</code> if duplicate values are rendered again
+     * @param renderCache the render cache, <code>null</code> if the cell is not cached
+     * @param renderCacheSettings the settings that are part of the cell's key in the render cache
+     * @param imageType the type of the rendered cell
+     * @param render renders the cell
+     * @return the rendered cell
+     */
+    private static DataCell renderCached(final DataCell cell, final RenderMemo memo, final RenderCache renderCache,
+        final String renderCacheSettings, final ImageType imageType, final Supplier<DataCell> render) {
+        if (cell.isMissing()) {
+            return cell;
+        }
+        if (memo != null) {
+            DataCell result = memo.get(cell);
+            if (result != null) {
+                return result;
             }
-        };
-        final int colIndex = inSpec.findColumnIndex(columnName);
-        SingleCellFactory cf;
-        if (ImageType.Svg.equals(m_settings.imageType())) {
-            DataColumnSpecCreator append = new DataColumnSpecCreator(colName, SvgCellFactory.TYPE);
-            cf = new SingleCellFactory(append.createSpec()) {
-                @Override
-                public DataCell getCell(final DataRow row) {
-                    try {
-                        return createSvgCell(row.getCell(colIndex), rendererInitializer.get());
-                    } catch (ConcurrentException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            };
-        } else if (ImageType.Png.equals(m_settings.imageType())) {
-            DataColumnSpecCreator append = new DataColumnSpecCreator(colName, PNGImageContent.TYPE);
-            cf = new SingleCellFactory(append.createSpec()) {
-                @Override
-                public DataCell getCell(final DataRow row) {
+        }
+
+        DataCell result = null;
+        String key = (renderCache == null) ? null : renderCache.key(cell, renderCacheSettings);
+        if (key != null) {
+            byte[] cached = renderCache.get(key);
+            if (cached != null) {
+                if (ImageType.Png.equals(imageType)) {
+                    result = new PNGImageContent(cached).toImageCell();
+                } else {
                     try {
-                        return createPngCell(row.getCell(colIndex), rendererInitializer.get());
-                    } catch (ConcurrentException e) {
-                        throw new RuntimeException(e);
+                        // the entry has been created from a valid cell, it is parsed only when it is accessed
+                        result = SvgCellFactory.create(new String(cached, StandardCharsets.UTF_8), Validation.NONE);
                     } catch (IOException ex) {
-                        getLogger().error("Could not create PNG image: " + ex.getMessage(), ex);
-                        return DataType.getMissingCell();
+                        NodeLogger.getLogger(Renderer2ImageNodeModel.class)
+                            .debug("Invalid SVG in render cache, rendering again: " + ex.getMessage(), ex);
                     }
                 }
-            };
-        } else {
-            throw new InvalidSettingsException("Unsupported image type: " + m_settings.imageType());
+            }
         }
-        MyColumnRearranger crea = new MyColumnRearranger(inSpec, colName, rendererInitializer);
-        if (m_settings.replaceColumn()) {
-            crea.replace(cf, columnName);
-        } else {
-            crea.append(cf);
+
+        if (result == null) {
+            result = render.get();
+            if (RenderWatchdog.isHalted()) {
+                // the image is probably incomplete, it must neither be cached nor remembered
+                throw new CancellationException("Render time budget exceeded");
+            }
+            if ((key != null) && !result.isMissing()) {
+                if (result instanceof PNGImageValue) {
+                    renderCache.put(key, ((PNGImageValue)result).getImageContent().getByteArray());
+                } else if (result instanceof StringValue) {
+                    renderCache.put(key, ((StringValue)result).getStringValue().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        if (memo != null) {
+            memo.put(cell, result);
         }
+        return result;
+    }
 
-        return crea;
+    /**
+     * Returns whether the cell is passed on unchanged by {@link #createSvgCell(DataCell, DataValueRenderer,
+     * SvgGenerator)}.
+     */
+    private static boolean isPassedOn(final DataCell cell, final DataValueRenderer renderer) {
+        return (renderer.getClass() == SvgValueRenderer.class)
+            && ((cell instanceof SvgCell) || (cell instanceof SvgBlobCell));
     }
 
-    private DataTableSpec fixPropertiesInSpec(final DataTableSpec spec, final MyColumnRearranger rearranger)
-            throws ConcurrentException {
-        if (!ImageType.Svg.equals(m_settings.imageType())) {
+    private static DataTableSpec fixPropertiesInSpec(final DataTableSpec spec, final MyColumnRearranger rearranger) {
+        if (rearranger.getSvgColumns().isEmpty()) {
             return spec;
         }
         DataTableSpecCreator tableSpecCreator = new DataTableSpecCreator(spec);
 
-        int columnIndex = spec.findColumnIndex(rearranger.getColName());
-        assert columnIndex >= 0;
-        DataColumnSpec oldColSpec = spec.getColumnSpec(columnIndex);
-
-        DataColumnSpecCreator newColSpecCreator = new DataColumnSpecCreator(oldColSpec);
-        Dimension prefSize = rearranger.getRenderer().getPreferredSize();
-
-        HashMap<String, String> newProps = new HashMap<String, String>();
-        newProps.put(SvgValueRenderer.OPTION_KEEP_ASPECT_RATIO, "true");
-        newProps.put(SvgValueRenderer.OPTION_PREFERRED_HEIGHT, Integer.toString(prefSize.height));
-        newProps.put(SvgValueRenderer.OPTION_PREFERRED_WIDTH, Integer.toString(prefSize.width));
-        DataColumnProperties props = new DataColumnProperties(newProps);
-        newColSpecCreator.setProperties(props);
-        tableSpecCreator.replaceColumn(columnIndex, newColSpecCreator.createSpec());
+        for (Map.Entry<String, SvgColumnSize> e : rearranger.getSvgColumns().entrySet()) {
+            int columnIndex = spec.findColumnIndex(e.getKey());
+            assert columnIndex >= 0;
+            DataColumnSpec oldColSpec = spec.getColumnSpec(columnIndex);
+
+            DataColumnSpecCreator newColSpecCreator = new DataColumnSpecCreator(oldColSpec);
+            Dimension prefSize = e.getValue().get();
+
+            HashMap<String, String> newProps = new HashMap<String, String>();
+            newProps.put(SvgValueRenderer.OPTION_KEEP_ASPECT_RATIO, "true");
+            newProps.put(SvgValueRenderer.OPTION_PREFERRED_HEIGHT, Integer.toString(prefSize.height));
+            newProps.put(SvgValueRenderer.OPTION_PREFERRED_WIDTH, Integer.toString(prefSize.width));
+            DataColumnProperties props = new DataColumnProperties(newProps);
+            newColSpecCreator.setProperties(props);
+            tableSpecCreator.replaceColumn(columnIndex, newColSpecCreator.createSpec());
+        }
         return tableSpecCreator.createSpec();
     }
 
@@ -318,18 +574,34 @@ private DataTableSpec fixPropertiesInSpec(final DataTableSpec spec, final MyColu
      *
      * @param cell a data cell
      * @param renderer a renderer
-     * @return a new {@link SvgCell} or {@link SvgBlobCell}
+     * @param generator the generator for renderers that don't provide SVG themselves
+     * @return a new {@link SvgCell} or {@link SvgBlobCell}, or the passed cell if it is already an SVG cell that is
+     *         rendered unchanged
      */
-    DataCell createSvgCell(final DataCell cell, final DataValueRenderer renderer) {
+    DataCell createSvgCell(final DataCell cell, final DataValueRenderer renderer, final SvgGenerator generator) {
+        return createSvgCell(cell, renderer, new RendererComponent(renderer, cell), generator, new RenderTimings.Row());
+    }
+
+    private DataCell createSvgCell(final DataCell cell, final DataValueRenderer renderer,
+        final Supplier<Component> component, final SvgGenerator generator, final RenderTimings.Row timing) {
         if (cell.isMissing()) {
             return cell;
         }
-        Component comp = renderer.getRendererComponent(cell);
+        if (isPassedOn(cell, renderer)) {
+            // the SVG renderer shows the cell's document as is, no need to parse, copy or serialize it again
+            return cell;
+        }
+        long start = System.nanoTime();
+        Component comp = component.get();
         if (comp instanceof SvgProvider) {
 
             try (LockedSupplier<SVGDocument> supplier = ((SvgProvider)comp).getSvgSupplier()) {
                 SVGDocument doc = supplier.get();
-                return SvgCellFactory.create(doc);
+                long rendered = System.nanoTime();
+                timing.addRender(rendered - start);
+                DataCell result = SvgCellFactory.create(doc);
+                timing.addEncode(System.nanoTime() - rendered);
+                return result;
             }
         }
 
@@ -339,17 +611,12 @@ DataCell createSvgCell(final DataCell cell, final DataValueRenderer renderer) {
         }
         comp.setSize(size);
 
-        DOMImplementation domImpl = new SVGDOMImplementation();
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document myFactory = domImpl.createDocument(svgNS, "svg", null);
-        SVGGraphics2D g = new SVGGraphics2D(myFactory);
-        g.setColor(Color.GREEN);
-        g.setSVGCanvasSize(size);
-
-        comp.update(g);
-
-        myFactory.replaceChild(g.getRoot(), myFactory.getDocumentElement());
-        return SvgCellFactory.create((SVGDocument)myFactory);
+        SVGDocument doc = generator.generate(comp, size);
+        long rendered = System.nanoTime();
+        timing.addRender(rendered - start);
+        DataCell result = SvgCellFactory.create(doc, Validation.STRUCTURAL);
+        timing.addEncode(System.nanoTime() - rendered);
+        return result;
     }
 
     /**
@@ -357,14 +624,24 @@ DataCell createSvgCell(final DataCell cell, final DataValueRenderer renderer) {
      *
      * @param cell a data cell
      * @param renderer a renderer
+     * @param encoder the encoder for the image, also provides the image that is painted on
      * @return a new {@link PNGImageCell} or {@link PNGImageBlobCell}
-     * @throws IOException if an I/O error occurs while creating the image
      */
-    DataCell createPngCell(final DataCell cell, final DataValueRenderer renderer) throws IOException {
+    DataCell createPngCell(final DataCell cell, final DataValueRenderer renderer, final PngEncoder encoder) {
+        return createPngCell(cell, new RendererComponent(renderer, cell), encoder, new RenderTimings.Row());
+    }
+
+    private DataCell createPngCell(final DataCell cell, final Supplier<Component> component,
+        final PngEncoder encoder, final RenderTimings.Row timing) {
         if (cell.isMissing()) {
             return cell;
         }
-        Component comp = renderer.getRendererComponent(cell);
+        long start = System.nanoTime();
+        Component comp = component.get();
+        if (comp instanceof JComponent) {
+            // each value is painted once, its image must not replace the cached images of the table views
+            ((JComponent)comp).putClientProperty(SvgValueRenderer.CLIENT_PROPERTY_UNCACHED, Boolean.TRUE);
+        }
 
         Dimension size = m_settings.pngSize();
         if ((size.width <= 0) || (size.height <= 0)) {
@@ -372,41 +649,308 @@ DataCell createPngCell(final DataCell cell, final DataValueRenderer renderer) th
         }
         comp.setSize(size);
 
-        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        // the component keeps its layout size, only the graphics are scaled to the image's resolution, whose size
+        // has been checked when the settings were loaded
+        final int supersampling = m_settings.pngSupersampling();
+        final Dimension imageSize = m_settings.pngImageSize();
+        BufferedImage image = encoder.getImage(Math.multiplyExact(imageSize.width, supersampling),
+            Math.multiplyExact(imageSize.height, supersampling));
         // create graphics object to paint in
         Graphics2D graphics = image.createGraphics();
-        comp.paint(graphics);
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
-        ImageIO.write(image, "png", bos);
-        bos.close();
+        try {
+            graphics.scale((double)image.getWidth() / size.width, (double)image.getHeight() / size.height);
+            comp.paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+
+        image = encoder.downsample(image, supersampling);
+        long rendered = System.nanoTime();
+        timing.addRender(rendered - start);
+        DataCell result = new PNGImageContent(encoder.encode(image)).toImageCell();
+        timing.addEncode(System.nanoTime() - rendered);
+        return result;
+    }
+
+    /**
+     * The renderer component for a cell. It is only requested once from the renderer, even if several images are
+     * created from it, and not at all if all images are passed on or found in a memo or cache.
+     */
+    private static final class RendererComponent implements Supplier<Component> {
+        private final DataValueRenderer m_renderer;
+
+        private final DataCell m_cell;
 
-        return new PNGImageContent(bos.toByteArray()).toImageCell();
+        private Component m_component;
+
+        RendererComponent(final DataValueRenderer renderer, final DataCell cell) {
+            m_renderer = renderer;
+            m_cell = cell;
+        }
+
+        @Override
+        public Component get() {
+            if (m_component == null) {
+                m_component = m_renderer.getRendererComponent(m_cell);
+            }
+            return m_component;
+        }
+    }
+
+    /**
+     * A column that is rendered together with the memos and render caches of its output columns.
+     */
+    private static final class RenderedColumn {
+        private final int m_index;
+
+        private final RendererPool m_rendererPool;
+
+        private final RenderMemo[] m_memos;
+
+        private final RenderCache m_renderCache;
+
+        private final String[] m_renderCacheSettings;
+
+        private final SvgColumnSize[] m_svgSizes;
+
+        RenderedColumn(final int index, final RendererPool rendererPool, final RenderMemo[] memos,
+            final RenderCache renderCache, final String[] renderCacheSettings, final SvgColumnSize[] svgSizes) {
+            m_index = index;
+            m_rendererPool = rendererPool;
+            m_memos = memos;
+            m_renderCache = renderCache;
+            m_renderCacheSettings = renderCacheSettings;
+            m_svgSizes = svgSizes;
+        }
+    }
+
+    /**
+     * Records the preferred size of the images in a new SVG column while its cells are created. The largest width and
+     * height of all cells are used, which does not depend on the order in which the rows are rendered or on whether
+     * the cells are passed on or taken from a cache.
+     */
+    private static final class SvgColumnSize {
+        private final RendererPool m_rendererPool;
+
+        private int m_width = -1;
+
+        private int m_height = -1;
+
+        /** @param rendererPool the renderers of the column, asked only if no cell has been created */
+        SvgColumnSize(final RendererPool rendererPool) {
+            m_rendererPool = rendererPool;
+        }
+
+        void update(final DataCell cell) {
+            if (cell instanceof SvgValue) {
+                Dimension size = SvgCellFactory.getPreferredSize((SvgValue)cell);
+                synchronized (this) {
+                    m_width = Math.max(m_width, size.width);
+                    m_height = Math.max(m_height, size.height);
+                }
+            }
+        }
+
+        synchronized Dimension get() {
+            if (m_width < 0) {
+                return m_rendererPool.getRenderer().getPreferredSize();
+            }
+            return new Dimension(m_width, m_height);
+        }
+    }
+
+    /**
+     * Creates all images of a row in one pass. For each rendered column a single renderer is borrowed and used for
+     * all image types.
+     */
+    private final class RendererCellFactory extends AbstractCellFactory {
+        private final List<RenderedColumn> m_columns;
+
+        private final ImageType[] m_imageTypes;
+
+        private final boolean m_hasSvg;
+
+        private final boolean m_hasPng;
+
+        private final RenderTimings m_timings;
+
+        private final boolean m_timingColumn;
+
+        private final RenderWatchdog m_watchdog;
+
+        // generators and encoders reuse their buffers, therefore each worker thread borrows its own ones as well
+        private final Deque<SvgGenerator> m_generators = new ConcurrentLinkedDeque<>();
+
+        private final Deque<PngEncoder> m_encoders = new ConcurrentLinkedDeque<>();
+
+        /**
+         * @param columns the rendered columns
+         * @param imageTypes the types of images that are created for each column
+         * @param outSpecs the specs of the new columns, the last one is the timing column if there is one
+         * @param timings the recorded render times, <code>null</code> if they are not measured
+         * @param timingColumn whether the last new column holds the render time of each row
+         * @param watchdog the watchdog that limits the render time of each row, <code>null</code> if it is unlimited
+         */
+        RendererCellFactory(final List<RenderedColumn> columns, final ImageType[] imageTypes,
+            final List<DataColumnSpec> outSpecs, final RenderTimings timings, final boolean timingColumn,
+            final RenderWatchdog watchdog) {
+            super(m_settings.parallelExecution(), outSpecs.toArray(new DataColumnSpec[0]));
+            m_columns = columns;
+            m_imageTypes = imageTypes;
+            m_hasSvg = ArrayUtils.contains(imageTypes, ImageType.Svg);
+            m_hasPng = ArrayUtils.contains(imageTypes, ImageType.Png);
+            m_timings = timings;
+            m_timingColumn = timingColumn;
+            m_watchdog = watchdog;
+        }
+
+        @Override
+        public DataCell[] getCells(final DataRow row) {
+            if (m_watchdog == null) {
+                return renderRow(row);
+            }
+            final long start = System.nanoTime();
+            try {
+                return m_watchdog.call(row.getKey(), () -> renderRow(row));
+            } catch (TimeoutException ex) {
+                return createExceededCells(row, System.nanoTime() - start);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Rendering of row " + row.getKey() + " has been interrupted");
+            }
+        }
+
+        /**
+         * Creates the cells for a row whose rendering has been aborted, all images are missing.
+         */
+        private DataCell[] createExceededCells(final DataRow row, final long nanos) {
+            DataCell[] result = new DataCell[getColumnSpecs().length];
+            Arrays.fill(result,
+                new MissingCell("Render time budget of " + m_watchdog.getBudgetMillis() + " ms exceeded"));
+            final RenderTimings.Row timing = new RenderTimings.Row();
+            timing.addRender(nanos);
+            if (m_timings != null) {
+                m_timings.add(row.getKey(), timing);
+            }
+            if (m_timingColumn) {
+                result[result.length - 1] = new DoubleCell(timing.getTotalNanos() / 1e6);
+            }
+            return result;
+        }
+
+        /**
+         * Renders all images of a row. The generator, encoder and renderers are borrowed and released by this method,
+         * because it may still run in the background after the watchdog has given up on the row.
+         */
+        private DataCell[] renderRow(final DataRow row) {
+            final SvgGenerator generator = m_hasSvg ? pollOrCreate(m_generators, SvgGenerator::new) : null;
+            final PngEncoder encoder = m_hasPng ? pollOrCreate(m_encoders,
+                () -> new PngEncoder(m_settings.pngCompressionLevel(), m_settings.pngQuality())) : null;
+            final RenderTimings.Row timing = new RenderTimings.Row();
+            try {
+                DataCell[] result = new DataCell[m_columns.size() * m_imageTypes.length + (m_timingColumn ? 1 : 0)];
+                int i = 0;
+                for (RenderedColumn column : m_columns) {
+                    final DataCell cell = row.getCell(column.m_index);
+                    final DataValueRenderer renderer = column.m_rendererPool.borrow();
+                    // all image types are created from the same component
+                    final RendererComponent component = new RendererComponent(renderer, cell);
+                    try {
+                        for (int t = 0; t < m_imageTypes.length; t++) {
+                            if (ImageType.Png.equals(m_imageTypes[t])) {
+                                result[i++] = renderCached(cell, column.m_memos[t], column.m_renderCache,
+                                    column.m_renderCacheSettings[t], ImageType.Png,
+                                    () -> createPngCell(cell, component, encoder, timing));
+                            } else {
+                                if (isPassedOn(cell, renderer)) {
+                                    // cheaper than any cache lookup
+                                    result[i] = cell;
+                                } else {
+                                    result[i] = renderCached(cell, column.m_memos[t], column.m_renderCache,
+                                        column.m_renderCacheSettings[t], ImageType.Svg,
+                                        () -> createSvgCell(cell, renderer, component, generator, timing));
+                                }
+                                column.m_svgSizes[t].update(result[i++]);
+                            }
+                        }
+                    } finally {
+                        column.m_rendererPool.release(renderer);
+                    }
+                }
+                if (RenderWatchdog.isHalted()) {
+                    throw new CancellationException("Render time budget exceeded");
+                }
+                if (m_timings != null) {
+                    m_timings.add(row.getKey(), timing);
+                }
+                if (m_timingColumn) {
+                    result[i] = new DoubleCell(timing.getTotalNanos() / 1e6);
+                }
+                return result;
+            } finally {
+                if (generator != null) {
+                    m_generators.offerFirst(generator);
+                }
+                if (encoder != null) {
+                    m_encoders.offerFirst(encoder);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * The warning about rows that exceeded the render time budget is set here, so that it is also shown when
+         * the node is streamed.
+         */
+        @Override
+        public void afterProcessing() {
+            if (m_watchdog != null) {
+                m_watchdog.shutdown();
+                if (m_watchdog.getExceededCount() > 0) {
+                    setWarningMessage(m_watchdog.getExceededCount() + " row(s) exceeded the render time budget of "
+                        + m_watchdog.getBudgetMillis() + " ms and have missing images, first one: "
+                        + m_watchdog.getFirstExceededRow());
+                }
+            }
+            for (PngEncoder encoder; (encoder = m_encoders.pollFirst()) != null;) {
+                encoder.dispose();
+            }
+        }
+    }
+
+    private static <T> T pollOrCreate(final Deque<T> pool, final Supplier<T> factory) {
+        T t = pool.pollFirst();
+        return (t != null) ? t : factory.get();
     }
 
     private static final class MyColumnRearranger extends ColumnRearranger {
 
-        private String m_colName;
-        private LazyInitializer<DataValueRenderer> m_rendererInitializer;
+        private final Map<String, SvgColumnSize> m_svgColumns;
+
+        private final RenderTimings m_timings;
 
         /** @param original forwarded to super.
-         * @param rendererInitializer
-         * @param colName */
-        MyColumnRearranger(final DataTableSpec original, final String colName,
-            final LazyInitializer<DataValueRenderer> rendererInitializer) {
+         * @param svgColumns the names of the new SVG columns with the preferred sizes of their images
+         * @param timings the recorded render times, <code>null</code> if they are not measured */
+        MyColumnRearranger(final DataTableSpec original, final Map<String, SvgColumnSize> svgColumns,
+            final RenderTimings timings) {
             super(original);
-            m_colName = colName;
-            m_rendererInitializer = rendererInitializer;
+            m_svgColumns = svgColumns;
+            m_timings = timings;
         }
 
-        /** @return the colName of the modified/new column. */
-        String getColName() {
-            return m_colName;
+        /** @return the recorded render times, <code>null</code> if they are not measured */
+        RenderTimings getTimings() {
+            return m_timings;
         }
 
-        /** @return the renderer used (lazy initialized - don't call on configure()).
-         * @throws ConcurrentException as per commons.lang API - not actually thrown. */
-        DataValueRenderer getRenderer() throws ConcurrentException {
-            return m_rendererInitializer.get();
+        /**
+         * @return the names of the new SVG columns with the preferred sizes of their images (recorded while the cells
+         *         are created - don't query them on configure())
+         */
+        Map<String, SvgColumnSize> getSvgColumns() {
+            return m_svgColumns;
         }
 
     }
@@ -48,6 +48,10 @@
 package org.knime.base.node.renderer2image;
 
 import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.apache.commons.lang3.EnumUtils;
 
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
@@ -69,18 +73,66 @@ public enum ImageType {
         Png
     }
 
+    /**
+     * Default deflate level for PNG images, same as the one used by the JDK's PNG writer.
+     */
+    static final int DEFAULT_PNG_COMPRESSION_LEVEL = 4;
+
+    /** The largest length of arrays that is supported by all VMs. */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * Default maximum size of the render cache in megabytes.
+     */
+    static final int DEFAULT_RENDER_CACHE_SIZE = 1024;
+
+    /**
+     * Default maximum memory for remembering rendered duplicate values in megabytes.
+     */
+    static final int DEFAULT_DUPLICATE_MEMO_SIZE = 64;
+
     private String m_columnName;
 
     private String m_rendererDescription;
 
     private ImageType m_imageType = ImageType.Png;
 
+    private ImageType[] m_additionalImageTypes = new ImageType[0];
+
+    private String[] m_additionalColumnNames = new String[0];
+
+    private boolean m_measureRenderTimes;
+
+    private boolean m_appendRenderTimeColumn;
+
+    private int m_renderTimeBudget;
+
     private Dimension m_pngSize;
 
     private boolean m_replaceColumn;
 
     private String m_newColumnName;
 
+    private boolean m_parallelExecution;
+
+    private int m_pngCompressionLevel = DEFAULT_PNG_COMPRESSION_LEVEL;
+
+    private int m_pngQuality = 100;
+
+    private double m_pngScale = 1;
+
+    private int m_pngSupersampling = 1;
+
+    private boolean m_renderCache;
+
+    private String m_renderCacheDirectory;
+
+    private int m_renderCacheSize = DEFAULT_RENDER_CACHE_SIZE;
+
+    private boolean m_renderDuplicatesOnce;
+
+    private int m_duplicateMemoSize = DEFAULT_DUPLICATE_MEMO_SIZE;
+
     /**
      * Sets the selected column's name.
      *
@@ -99,6 +151,27 @@ public String columnName() {
         return m_columnName;
     }
 
+    /**
+     * Sets the names of further columns that are rendered in the same pass as the selected column. They are rendered
+     * with the selected renderer if their type supports it, otherwise with their preferred renderer.
+     *
+     * @param colNames the columns' names, must not be <code>null</code>
+     * @since 5.11
+     */
+    public void additionalColumnNames(final String... colNames) {
+        m_additionalColumnNames = colNames.clone();
+    }
+
+    /**
+     * Returns the names of further columns that are rendered in the same pass as the selected column.
+     *
+     * @return the columns' names, never <code>null</code>
+     * @since 5.11
+     */
+    public String[] additionalColumnNames() {
+        return m_additionalColumnNames.clone();
+    }
+
     /**
      * Sets the selected renderer's description.
      *
@@ -135,6 +208,88 @@ public ImageType imageType() {
         return m_imageType;
     }
 
+    /**
+     * Sets further types of images that are created in the same pass as images of the primary {@link #imageType()}.
+     *
+     * @param types the image types, must not be <code>null</code>
+     * @since 5.11
+     */
+    public void additionalImageTypes(final ImageType... types) {
+        m_additionalImageTypes = types.clone();
+    }
+
+    /**
+     * Returns further types of images that are created in the same pass as images of the primary
+     * {@link #imageType()}.
+     *
+     * @return the image types, never <code>null</code>
+     * @since 5.11
+     */
+    public ImageType[] additionalImageTypes() {
+        return m_additionalImageTypes.clone();
+    }
+
+    /**
+     * Sets whether the render and encode times of all rows are measured and summarized in flow variables.
+     *
+     * @param measure <code>true</code> if render times are measured, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public void measureRenderTimes(final boolean measure) {
+        m_measureRenderTimes = measure;
+    }
+
+    /**
+     * Returns whether the render and encode times of all rows are measured and summarized in flow variables.
+     *
+     * @return <code>true</code> if render times are measured, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public boolean measureRenderTimes() {
+        return m_measureRenderTimes;
+    }
+
+    /**
+     * Sets whether a column with the render time of each row is appended. Only used if render times are measured.
+     *
+     * @param append <code>true</code> if the column is appended, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public void appendRenderTimeColumn(final boolean append) {
+        m_appendRenderTimeColumn = append;
+    }
+
+    /**
+     * Returns whether a column with the render time of each row is appended.
+     *
+     * @return <code>true</code> if the column is appended, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public boolean appendRenderTimeColumn() {
+        return m_appendRenderTimeColumn;
+    }
+
+    /**
+     * Sets the maximum time for rendering the images of a row. Rendering is aborted if it takes longer and the row
+     * gets missing images.
+     *
+     * @param millis the time in milliseconds, 0 if the time is not limited
+     * @since 5.11
+     */
+    public void renderTimeBudget(final int millis) {
+        m_renderTimeBudget = millis;
+    }
+
+    /**
+     * Returns the maximum time for rendering the images of a row.
+     *
+     * @return the time in milliseconds, 0 if the time is not limited
+     * @since 5.11
+     */
+    public int renderTimeBudget() {
+        return m_renderTimeBudget;
+    }
+
     /**
      * Returns the desired size of PNG images.
      *
@@ -193,6 +348,245 @@ public String newColumnName() {
         return m_newColumnName;
     }
 
+    /**
+     * Sets whether values should be rendered by several threads in parallel. Each thread uses its own renderer
+     * instance.
+     *
+     * @param parallel <code>true</code> if values should be rendered in parallel, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public void parallelExecution(final boolean parallel) {
+        m_parallelExecution = parallel;
+    }
+
+    /**
+     * Returns whether values should be rendered by several threads in parallel.
+     *
+     * @return <code>true</code> if values should be rendered in parallel, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public boolean parallelExecution() {
+        return m_parallelExecution;
+    }
+
+    /**
+     * Sets the deflate level that is used for compressing PNG images.
+     *
+     * @param level the level between 0 (no compression, fastest) and 9 (best compression, slowest)
+     * @since 5.11
+     */
+    public void pngCompressionLevel(final int level) {
+        m_pngCompressionLevel = level;
+    }
+
+    /**
+     * Returns the deflate level that is used for compressing PNG images.
+     *
+     * @return the level between 0 (no compression, fastest) and 9 (best compression, slowest)
+     * @since 5.11
+     */
+    public int pngCompressionLevel() {
+        return m_pngCompressionLevel;
+    }
+
+    /**
+     * Sets the quality of PNG images. Below 100 the color channels are reduced to fewer levels, which makes the images
+     * smaller.
+     *
+     * @param quality the quality between 0 and 100 (lossless)
+     * @since 5.11
+     */
+    public void pngQuality(final int quality) {
+        m_pngQuality = quality;
+    }
+
+    /**
+     * Returns the quality of PNG images.
+     *
+     * @return the quality between 0 and 100 (lossless)
+     * @since 5.11
+     */
+    public int pngQuality() {
+        return m_pngQuality;
+    }
+
+    /**
+     * Sets the device scale of PNG images. The renderer is laid out with the PNG size but painted through a scaled
+     * graphics object, so that e.g. a scale of 2 gives images with twice the width and height for HiDPI displays.
+     *
+     * @param scale the scale, greater than 0 and at most 8
+     * @since 5.11
+     */
+    public void pngScale(final double scale) {
+        m_pngScale = scale;
+    }
+
+    /**
+     * Returns the device scale of PNG images.
+     *
+     * @return the scale, greater than 0 and at most 8
+     * @since 5.11
+     */
+    public double pngScale() {
+        return m_pngScale;
+    }
+
+    /**
+     * Sets the supersampling factor of PNG images. Images are painted with this factor in both dimensions and then
+     * reduced to their final size, which gives smoother edges for renderers that do not anti-alias themselves.
+     *
+     * @param factor the factor between 1 (no supersampling) and 4
+     * @since 5.11
+     */
+    public void pngSupersampling(final int factor) {
+        m_pngSupersampling = factor;
+    }
+
+    /**
+     * Returns the supersampling factor of PNG images.
+     *
+     * @return the factor between 1 (no supersampling) and 4
+     * @since 5.11
+     */
+    public int pngSupersampling() {
+        return m_pngSupersampling;
+    }
+
+    /**
+     * Returns the size of PNG images in pixels, i.e. the PNG size multiplied with the scale. Non-positive PNG sizes
+     * are replaced by 100&times;100.
+     *
+     * @return the size of the images before supersampling
+     */
+    Dimension pngImageSize() {
+        Dimension size = m_pngSize;
+        if ((size == null) || (size.width <= 0) || (size.height <= 0)) {
+            size = new Dimension(100, 100);
+        }
+        return new Dimension(Math.max(1, (int)Math.min(Integer.MAX_VALUE, Math.round(size.width * m_pngScale))),
+            Math.max(1, (int)Math.min(Integer.MAX_VALUE, Math.round(size.height * m_pngScale))));
+    }
+
+    /**
+     * Checks that the supersampled PNG images and their encoded scanlines fit into arrays.
+     */
+    private void checkPngImageSize() throws InvalidSettingsException {
+        if ((m_imageType != ImageType.Png) && !Arrays.asList(m_additionalImageTypes).contains(ImageType.Png)) {
+            return;
+        }
+        Dimension size = pngImageSize();
+        long pixels = (long)size.width * m_pngSupersampling * size.height * m_pngSupersampling;
+        long scanlineBytes = (1 + 4L * size.width) * size.height;
+        if ((pixels > MAX_ARRAY_LENGTH) || (scanlineBytes > MAX_ARRAY_LENGTH)) {
+            throw new InvalidSettingsException("PNG images of " + size.width + "x" + size.height
+                + " pixels with a supersampling factor of " + m_pngSupersampling
+                + " are too large, reduce the image size, scale or supersampling factor");
+        }
+    }
+
+    /**
+     * Sets whether rendered images are stored in and taken from a persistent cache, so that repeated executions only
+     * render new or changed values.
+     *
+     * @param cache <code>true</code> if the render cache is used, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public void renderCache(final boolean cache) {
+        m_renderCache = cache;
+    }
+
+    /**
+     * Returns whether rendered images are stored in and taken from a persistent cache.
+     *
+     * @return <code>true</code> if the render cache is used, <code>false</code> otherwise
+     * @since 5.11
+     */
+    public boolean renderCache() {
+        return m_renderCache;
+    }
+
+    /**
+     * Sets the local directory of the render cache.
+     *
+     * @param directory the directory's path
+     * @since 5.11
+     */
+    public void renderCacheDirectory(final String directory) {
+        m_renderCacheDirectory = directory;
+    }
+
+    /**
+     * Returns the local directory of the render cache.
+     *
+     * @return the directory's path, may be <code>null</code>
+     * @since 5.11
+     */
+    public String renderCacheDirectory() {
+        return m_renderCacheDirectory;
+    }
+
+    /**
+     * Sets the maximum size of the render cache. Least recently used images are deleted if the cache becomes larger.
+     *
+     * @param size the size in megabytes
+     * @since 5.11
+     */
+    public void renderCacheSize(final int size) {
+        m_renderCacheSize = size;
+    }
+
+    /**
+     * Returns the maximum size of the render cache.
+     *
+     * @return the size in megabytes
+     * @since 5.11
+     */
+    public int renderCacheSize() {
+        return m_renderCacheSize;
+    }
+
+    /**
+     * Sets whether values that occur several times in the column are only rendered once per execution.
+     *
+     * @param once <code>true</code> if duplicate values are rendered once, <code>false</code> if every row is
+     *            rendered
+     * @since 5.11
+     */
+    public void renderDuplicatesOnce(final boolean once) {
+        m_renderDuplicatesOnce = once;
+    }
+
+    /**
+     * Returns whether values that occur several times in the column are only rendered once per execution.
+     *
+     * @return <code>true</code> if duplicate values are rendered once, <code>false</code> if every row is rendered
+     * @since 5.11
+     */
+    public boolean renderDuplicatesOnce() {
+        return m_renderDuplicatesOnce;
+    }
+
+    /**
+     * Sets the maximum memory that is used for remembering rendered values. Least recently used values are forgotten
+     * if more memory would be used.
+     *
+     * @param size the size in megabytes
+     * @since 5.11
+     */
+    public void duplicateMemoSize(final int size) {
+        m_duplicateMemoSize = size;
+    }
+
+    /**
+     * Returns the maximum memory that is used for remembering rendered values.
+     *
+     * @return the size in megabytes
+     * @since 5.11
+     */
+    public int duplicateMemoSize() {
+        return m_duplicateMemoSize;
+    }
+
     /**
      * Saves the settings into the given settings object.
      *
@@ -210,6 +604,27 @@ public void saveSettings(final NodeSettingsWO settings) {
         // since 2.9
         settings.addBoolean("replaceColumn", m_replaceColumn);
         settings.addString("newColumnName", m_newColumnName);
+
+        // since 5.11
+        settings.addBoolean("parallelExecution", m_parallelExecution);
+        settings.addInt("pngCompressionLevel", m_pngCompressionLevel);
+        settings.addInt("pngQuality", m_pngQuality);
+        settings.addDouble("pngScale", m_pngScale);
+        settings.addInt("pngSupersampling", m_pngSupersampling);
+        settings.addBoolean("renderCache", m_renderCache);
+        settings.addString("renderCacheDirectory", m_renderCacheDirectory);
+        settings.addInt("renderCacheSize", m_renderCacheSize);
+        settings.addBoolean("renderDuplicatesOnce", m_renderDuplicatesOnce);
+        settings.addInt("duplicateMemoSize", m_duplicateMemoSize);
+        settings.addStringArray("additionalColumnNames", m_additionalColumnNames);
+        String[] additionalTypes = new String[m_additionalImageTypes.length];
+        for (int i = 0; i < additionalTypes.length; i++) {
+            additionalTypes[i] = m_additionalImageTypes[i].name();
+        }
+        settings.addStringArray("additionalImageTypes", additionalTypes);
+        settings.addBoolean("measureRenderTimes", m_measureRenderTimes);
+        settings.addBoolean("appendRenderTimeColumn", m_appendRenderTimeColumn);
+        settings.addInt("renderTimeBudget", m_renderTimeBudget);
     }
 
     /**
@@ -227,6 +642,64 @@ public void loadSettings(final NodeSettingsRO settings) throws InvalidSettingsEx
         // since 2.9
         m_replaceColumn = settings.getBoolean("replaceColumn", false);
         m_newColumnName = settings.getString("newColumnName", null);
+
+        // since 5.11
+        m_parallelExecution = settings.getBoolean("parallelExecution", false);
+        m_pngCompressionLevel = settings.getInt("pngCompressionLevel", DEFAULT_PNG_COMPRESSION_LEVEL);
+        if ((m_pngCompressionLevel < 0) || (m_pngCompressionLevel > 9)) {
+            throw new InvalidSettingsException(
+                "PNG compression level must be between 0 and 9: " + m_pngCompressionLevel);
+        }
+        m_pngQuality = settings.getInt("pngQuality", 100);
+        if ((m_pngQuality < 0) || (m_pngQuality > 100)) {
+            throw new InvalidSettingsException("PNG quality must be between 0 and 100: " + m_pngQuality);
+        }
+        m_pngScale = settings.getDouble("pngScale", 1);
+        if (!(m_pngScale > 0) || (m_pngScale > 8)) {
+            throw new InvalidSettingsException("PNG scale must be greater than 0 and at most 8: " + m_pngScale);
+        }
+        m_pngSupersampling = settings.getInt("pngSupersampling", 1);
+        if ((m_pngSupersampling < 1) || (m_pngSupersampling > 4)) {
+            throw new InvalidSettingsException(
+                "PNG supersampling factor must be between 1 and 4: " + m_pngSupersampling);
+        }
+        m_renderCache = settings.getBoolean("renderCache", false);
+        m_renderCacheDirectory = settings.getString("renderCacheDirectory", null);
+        m_renderCacheSize = settings.getInt("renderCacheSize", DEFAULT_RENDER_CACHE_SIZE);
+        if (m_renderCache && ((m_renderCacheDirectory == null) || m_renderCacheDirectory.trim().isEmpty())) {
+            throw new InvalidSettingsException("No render cache directory given");
+        }
+        if (m_renderCacheSize < 1) {
+            throw new InvalidSettingsException("Render cache size must be at least 1MB: " + m_renderCacheSize);
+        }
+        m_renderDuplicatesOnce = settings.getBoolean("renderDuplicatesOnce", false);
+        m_duplicateMemoSize = settings.getInt("duplicateMemoSize", DEFAULT_DUPLICATE_MEMO_SIZE);
+        if (m_duplicateMemoSize < 1) {
+            throw new InvalidSettingsException(
+                "Memory for duplicate values must be at least 1MB: " + m_duplicateMemoSize);
+        }
+        m_additionalColumnNames = settings.getStringArray("additionalColumnNames", new String[0]);
+        String[] additionalTypes = settings.getStringArray("additionalImageTypes", new String[0]);
+        m_additionalImageTypes = new ImageType[additionalTypes.length];
+        EnumSet<ImageType> selectedTypes = EnumSet.of(m_imageType);
+        for (int i = 0; i < additionalTypes.length; i++) {
+            try {
+                m_additionalImageTypes[i] = ImageType.valueOf(additionalTypes[i]);
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidSettingsException("Unsupported image type: " + additionalTypes[i], ex);
+            }
+            if (!selectedTypes.add(m_additionalImageTypes[i])) {
+                throw new InvalidSettingsException(
+                    "Image type " + m_additionalImageTypes[i] + " is selected more than once");
+            }
+        }
+        m_measureRenderTimes = settings.getBoolean("measureRenderTimes", false);
+        m_appendRenderTimeColumn = settings.getBoolean("appendRenderTimeColumn", false);
+        m_renderTimeBudget = settings.getInt("renderTimeBudget", 0);
+        if (m_renderTimeBudget < 0) {
+            throw new InvalidSettingsException("Render time budget must not be negative: " + m_renderTimeBudget);
+        }
+        checkPngImageSize();
     }
 
     /**
@@ -241,5 +714,22 @@ public void loadSettingsForDialog(final NodeSettingsRO settings) {
         m_pngSize = new Dimension(settings.getInt("pngWidth", 100), settings.getInt("pngHeight", 100));
         m_replaceColumn = settings.getBoolean("replaceColumn", false);
         m_newColumnName = settings.getString("newColumnName", null);
+        m_parallelExecution = settings.getBoolean("parallelExecution", false);
+        m_pngCompressionLevel = settings.getInt("pngCompressionLevel", DEFAULT_PNG_COMPRESSION_LEVEL);
+        m_pngQuality = settings.getInt("pngQuality", 100);
+        m_pngScale = settings.getDouble("pngScale", 1);
+        m_pngSupersampling = settings.getInt("pngSupersampling", 1);
+        m_renderCache = settings.getBoolean("renderCache", false);
+        m_renderCacheDirectory = settings.getString("renderCacheDirectory", null);
+        m_renderCacheSize = settings.getInt("renderCacheSize", DEFAULT_RENDER_CACHE_SIZE);
+        m_renderDuplicatesOnce = settings.getBoolean("renderDuplicatesOnce", false);
+        m_duplicateMemoSize = settings.getInt("duplicateMemoSize", DEFAULT_DUPLICATE_MEMO_SIZE);
+        m_additionalColumnNames = settings.getStringArray("additionalColumnNames", new String[0]);
+        m_additionalImageTypes = Arrays.stream(settings.getStringArray("additionalImageTypes", new String[0]))
+            .filter(t -> EnumUtils.isValidEnum(ImageType.class, t)).map(ImageType::valueOf)
+            .toArray(ImageType[]::new);
+        m_measureRenderTimes = settings.getBoolean("measureRenderTimes", false);
+        m_appendRenderTimeColumn = settings.getBoolean("appendRenderTimeColumn", false);
+        m_renderTimeBudget = settings.getInt("renderTimeBudget", 0);
     }
 }
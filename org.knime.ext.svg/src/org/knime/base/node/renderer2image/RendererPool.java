@@ -0,0 +1,113 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.renderer.DataValueRenderer;
+import org.knime.core.data.renderer.DataValueRendererFactory;
+
+/**
+ * Pool of renderer instances. Renderers are stateful components and must not be used by several threads at the same
+ * time, therefore each thread borrows its own renderer while rendering a value. New renderers are only created if all
+ * existing ones are in use, so the pool never holds more renderers than threads render concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RendererPool {
+    private final DataValueRendererFactory m_factory;
+
+    private final DataColumnSpec m_colSpec;
+
+    private final Deque<DataValueRenderer> m_idle = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param factory the factory for new renderers
+     * @param colSpec the spec of the column whose values are rendered
+     */
+    RendererPool(final DataValueRendererFactory factory, final DataColumnSpec colSpec) {
+        m_factory = factory;
+        m_colSpec = colSpec;
+    }
+
+    /**
+     * Borrows a renderer that is exclusively used by the caller until it is {@linkplain #release(DataValueRenderer)
+     * released}.
+     *
+     * @return a renderer
+     */
+    DataValueRenderer borrow() {
+        DataValueRenderer renderer = m_idle.pollFirst();
+        return (renderer != null) ? renderer : m_factory.createRenderer(m_colSpec);
+    }
+
+    /**
+     * Returns a borrowed renderer to the pool.
+     *
+     * @param renderer the renderer
+     */
+    void release(final DataValueRenderer renderer) {
+        m_idle.offerFirst(renderer);
+    }
+
+    /**
+     * Returns the most recently released renderer, e.g. for querying its preferred size after all values have been
+     * rendered. A new renderer is created if none has been used yet.
+     *
+     * @return a renderer, must not be used concurrently with rendering
+     */
+    DataValueRenderer getRenderer() {
+        DataValueRenderer renderer = m_idle.peekFirst();
+        if (renderer == null) {
+            renderer = m_factory.createRenderer(m_colSpec);
+            m_idle.offerFirst(renderer);
+        }
+        return renderer;
+    }
+}
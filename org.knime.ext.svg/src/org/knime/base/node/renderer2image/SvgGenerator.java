@@ -0,0 +1,101 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.base.node.renderer2image;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.svggen.SVGIDGenerator;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Generator for SVG documents from renderer components that don't provide SVG themselves. The
+ * {@link SVGGeneratorContext} with its image, style and extension handlers is created once and only pointed at a new
+ * document for each component, therefore a generator must only be used by one thread at a time.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SvgGenerator {
+    private final SVGGeneratorContext m_context;
+
+    /**
+     * Creates a new generator.
+     */
+    SvgGenerator() {
+        m_context = SVGGeneratorContext.createDefault(createDocument());
+    }
+
+    /**
+     * Paints the component into a new SVG document.
+     *
+     * @param comp a component whose size has already been set
+     * @param size the canvas size of the document
+     * @return a new SVG document
+     */
+    SVGDocument generate(final Component comp, final Dimension size) {
+        SVGDocument doc = createDocument();
+        m_context.setDOMFactory(doc);
+        // fresh ids so that the same component always results in the same document
+        m_context.setIDGenerator(new SVGIDGenerator());
+
+        SVGGraphics2D g = new SVGGraphics2D(m_context, false);
+        g.setColor(Color.GREEN);
+        g.setSVGCanvasSize(size);
+
+        comp.update(g);
+
+        doc.replaceChild(g.getRoot(), doc.getDocumentElement());
+        return doc;
+    }
+
+    private static SVGDocument createDocument() {
+        return (SVGDocument)SVGDOMImplementation.getDOMImplementation()
+            .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+    }
+}
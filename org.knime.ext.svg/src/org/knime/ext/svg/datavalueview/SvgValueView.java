@@ -50,6 +50,7 @@
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -57,7 +58,10 @@
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.knime.base.data.xml.SvgBlobCell;
+import org.knime.base.data.xml.SvgCell;
 import org.knime.base.data.xml.SvgValue;
+import org.knime.core.data.StringValue;
 import org.knime.core.webui.node.view.table.datavalue.DataValueView;
 import org.knime.core.webui.node.view.table.datavalue.views.image.ImageInitialData;
 import org.knime.core.webui.node.view.table.datavalue.views.image.ImageValueView;
@@ -78,6 +82,11 @@ public SvgValueView(final SvgValue value) {
 
     @Override
     public ImageInitialData getInitialData() {
+        if ((m_value instanceof SvgCell) || (m_value instanceof SvgBlobCell)) {
+            // SVG cells keep their serialized form, no need to lock and serialize the document
+            return new ImageInitialData(((StringValue)m_value).getStringValue().getBytes(StandardCharsets.UTF_8),
+                "image/svg+xml");
+        }
         try (var svgSupplier = m_value.getDocumentSupplier()) {
             return new ImageInitialData(getDataFromDocument(svgSupplier.get()), "image/svg+xml");
         }
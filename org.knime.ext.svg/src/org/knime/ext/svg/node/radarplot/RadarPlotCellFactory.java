@@ -56,7 +56,8 @@
 
 import org.apache.batik.anim.dom.SVGDOMImplementation;
 import org.apache.batik.svggen.SVGGraphics2D;
-import org.knime.base.data.xml.SvgCell;
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgCellFactory.Validation;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataRow;
@@ -218,7 +219,7 @@ public DataCell getCell(final DataRow row) {
 
         myFactory.replaceChild(g.getRoot(),
                 myFactory.getDocumentElement());
-        DataCell dc = new SvgCell((SVGDocument)myFactory);
+        DataCell dc = SvgCellFactory.create((SVGDocument)myFactory, Validation.STRUCTURAL);
         return dc;
     }
 }
@@ -56,6 +56,8 @@
 import org.apache.batik.anim.dom.SVGDOMImplementation;
 import org.apache.batik.svggen.SVGGraphics2D;
 import org.knime.base.data.xml.SvgCell;
+import org.knime.base.data.xml.SvgCellFactory;
+import org.knime.base.data.xml.SvgCellFactory.Validation;
 import org.knime.base.data.xml.SvgValueRenderer;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnProperties;
@@ -250,7 +252,7 @@ public DataCell getCell(final DataRow row) {
 
                 myFactory.replaceChild(g.getRoot(),
                         myFactory.getDocumentElement());
-                DataCell dc = new SvgCell((SVGDocument)myFactory);
+                DataCell dc = SvgCellFactory.create((SVGDocument)myFactory, Validation.STRUCTURAL);
                 return dc;
             }
         });